@@ -0,0 +1,112 @@
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import javax.swing.Timer;
+
+// Drives playback at the display refresh rate, independent of how many operations each frame
+// applies. The rate is in operations per second (fractions carry over between frames, so 1 op/s
+// works as well as millions), or, in adaptive mode, whatever rate finishes the remaining
+// operations by a target duration. Runs on the Swing EDT.
+public final class AnimationScheduler {
+    public interface Target {
+        // Applies up to maxOps operations and returns how many were applied
+        int advance(int maxOps);
+
+        int remaining();
+
+        // Called once per frame after advancing, e.g. to repaint
+        void frameDone();
+    }
+
+    // Keeps a single frame from stalling the EDT however high the rate is set
+    private static final int MAX_OPS_PER_FRAME = 5_000_000;
+
+    private final Target target;
+    private final Timer timer;
+    private double opsPerSecond = 10;
+    private long targetDurationNanos;   // 0 = fixed rate
+    private long deadline;
+    private int totalOps;
+    private double carry;
+    private long lastFrame;
+
+    public AnimationScheduler(Target target) {
+        this.target = target;
+        this.timer = new Timer(Math.max(1, 1000 / refreshRate()), e -> frame());
+        timer.setCoalesce(true);
+    }
+
+    static int refreshRate() {
+        if(GraphicsEnvironment.isHeadless()) return 60;
+        DisplayMode mode = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDisplayMode();
+        int rate = mode.getRefreshRate();
+        return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? 60 : rate;
+    }
+
+    public void setOpsPerSecond(double opsPerSecond) {
+        this.opsPerSecond = Math.max(0, opsPerSecond);
+    }
+
+    public double opsPerSecond() {
+        return opsPerSecond;
+    }
+
+    // Finish whatever is left within this many seconds; 0 switches back to the fixed rate
+    public void setTargetDuration(double seconds) {
+        targetDurationNanos = (long) (seconds * 1e9);
+        if(timer.isRunning()) resetDeadline();
+    }
+
+    public boolean isAdaptive() {
+        return targetDurationNanos > 0;
+    }
+
+    public void start() {
+        if(timer.isRunning()) return;
+        lastFrame = System.nanoTime();
+        carry = 0;
+        totalOps = Math.max(totalOps, target.remaining());
+        resetDeadline();
+        timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    public boolean isRunning() {
+        return timer.isRunning();
+    }
+
+    // New playback: the adaptive deadline covers the whole trace again
+    public void reset() {
+        stop();
+        totalOps = 0;
+    }
+
+    // Resuming part-way keeps the same overall pace: only the remaining share of the duration is left
+    private void resetDeadline() {
+        if(targetDurationNanos > 0) {
+            double share = totalOps == 0 ? 1 : (double) target.remaining() / totalOps;
+            deadline = System.nanoTime() + (long) (targetDurationNanos * share);
+        }
+    }
+
+    private void frame() {
+        long now = System.nanoTime();
+        double elapsed = (now - lastFrame) / 1e9;
+        lastFrame = now;
+
+        double rate = opsPerSecond;
+        if(targetDurationNanos > 0) {
+            double left = Math.max(1e-3, (deadline - now) / 1e9);
+            rate = target.remaining() / left;
+        }
+        carry = Math.min(carry + rate * elapsed, MAX_OPS_PER_FRAME);
+        int ops = (int) carry;
+        carry -= ops;
+        if(ops > 0) target.advance(ops);
+        target.frameDone();
+        if(target.remaining() == 0) timer.stop();
+    }
+}
@@ -0,0 +1,538 @@
+import java.io.*;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+// Picks a sort from the shape of the input instead of a hard-coded name. analyze() makes one
+// pass for min/max and samples the rest: the number of monotone runs adaptiveMergeSort would
+// find (from short windows), inversions (from random pairs) and the share of distinct
+// values (from a random sample).
+// choose() checks that shape against per-machine thresholds and returns the algorithm together
+// with the rule that picked it; sort() also reports how long the analysis took next to the sort.
+// Only a parallelism above 1 allows the parallel sort, so callers that schedule their own
+// threads (SortServer, SampleSort workers) pass 1 and get a sequential one.
+//
+// Thresholds come from a profile written once per machine by a calibration run, which times the
+// competing sorts around each crossover point. Later runs load it on first use; without one the
+// built-in defaults apply. The profile is ~/.sortingvisualizer/autosort.properties, or the file
+// named by -Dsort.profile.
+//
+//   java -cp bin AutoSorter --calibrate [--profile PATH]
+//   java -cp bin AutoSorter [--sizes 1000,1000000] [--shapes random,sorted,...]
+public final class AutoSorter {
+    static final int SAMPLE_SIZE = 1024;
+    static final int INVERSION_PAIRS = 1024;
+    static final int RUN_WINDOWS = 64, RUN_WINDOW = 64;
+
+    private static final long SEED = 42;
+    private static volatile Thresholds loaded;
+
+    private AutoSorter() {
+    }
+
+    // What analyze() measured; runs (ascending and descending alike) is an estimate on large inputs
+    public static final class InputShape {
+        public final int n, min, max, runs, inversionPairs;
+        public final double inversionRatio, distinctRatio;
+
+        InputShape(int n, int min, int max, int runs, int inversionPairs, double inversionRatio, double distinctRatio) {
+            this.n = n;
+            this.min = min;
+            this.max = max;
+            this.runs = runs;
+            this.inversionPairs = inversionPairs;
+            this.inversionRatio = inversionRatio;
+            this.distinctRatio = distinctRatio;
+        }
+
+        public long range() {
+            return n == 0 ? 0 : (long) max - min + 1;
+        }
+
+        // About 95% upper bound on the inversions in the whole input, from the sampled pairs
+        public double maxInversions() {
+            if(inversionPairs == 0) return 0;
+            double k = inversionRatio * inversionPairs;
+            return Math.min(1, (k + 2 * Math.sqrt(k) + 3) / inversionPairs) * ((double) n * (n - 1) / 2);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "n=%d, range=%d, runs=%d, inversions~%.1f%%, distinct~%.1f%%",
+                    n, range(), runs, 100 * inversionRatio, 100 * distinctRatio);
+        }
+    }
+
+    public static final class Decision {
+        public final String algorithm, reason, thresholds;
+        public final InputShape shape;
+        public final long analysisNanos;
+        long sortNanos = -1;
+
+        Decision(String algorithm, String reason, InputShape shape, Thresholds t, long analysisNanos) {
+            this.algorithm = algorithm;
+            this.reason = reason;
+            this.shape = shape;
+            this.thresholds = t.source;
+            this.analysisNanos = analysisNanos;
+        }
+
+        // -1 until the sort has run
+        public long sortNanos() {
+            return sortNanos;
+        }
+
+        @Override
+        public String toString() {
+            String s = String.format(Locale.ROOT, "%s: %s [%s]; analysis %.3f ms", algorithm, reason, shape, analysisNanos / 1e6);
+            if(sortNanos >= 0) {
+                s += String.format(Locale.ROOT, ", sort %.3f ms (analysis %.1f%% of total)", sortNanos / 1e6,
+                        100.0 * analysisNanos / Math.max(1, analysisNanos + sortNanos));
+            }
+            return s + "; thresholds: " + thresholds;
+        }
+    }
+
+    // Crossover points; calibrate() measures them, load() reads them back
+    static final class Thresholds {
+        int insertionMax = 2 * SortingAlgorithms.INSERTION_CUTOFF;
+        int radixMin = 1 << 12;
+        double countingRangeFactor = 2;
+        double adaptiveRunFraction = 1.0 / 64;
+        double fewDistinctRatio = 0.05;
+        int parallelMin = Runtime.getRuntime().availableProcessors() > 1 ? 1 << 17 : Integer.MAX_VALUE;
+        String source = "built-in defaults";
+
+        Properties toProperties() {
+            Properties p = new Properties();
+            p.setProperty("insertion.max", Integer.toString(insertionMax));
+            p.setProperty("radix.min", Integer.toString(radixMin));
+            p.setProperty("counting.rangeFactor", Double.toString(countingRangeFactor));
+            p.setProperty("adaptive.runFraction", Double.toString(adaptiveRunFraction));
+            p.setProperty("fewDistinct.ratio", Double.toString(fewDistinctRatio));
+            p.setProperty("parallel.min", Integer.toString(parallelMin));
+            p.setProperty("machine.cpus", Integer.toString(Runtime.getRuntime().availableProcessors()));
+            p.setProperty("machine.arch", System.getProperty("os.arch"));
+            p.setProperty("machine.java", System.getProperty("java.version"));
+            p.setProperty("calibrated", Instant.now().toString());
+            return p;
+        }
+
+        static Thresholds fromProperties(Properties p, String source) {
+            Thresholds t = new Thresholds();
+            t.insertionMax = Integer.parseInt(p.getProperty("insertion.max"));
+            t.radixMin = Integer.parseInt(p.getProperty("radix.min"));
+            t.countingRangeFactor = Double.parseDouble(p.getProperty("counting.rangeFactor"));
+            t.adaptiveRunFraction = Double.parseDouble(p.getProperty("adaptive.runFraction"));
+            t.fewDistinctRatio = Double.parseDouble(p.getProperty("fewDistinct.ratio"));
+            t.parallelMin = Integer.parseInt(p.getProperty("parallel.min"));
+            t.source = source;
+            return t;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "insertion.max=%d, radix.min=%d, counting.rangeFactor=%.3g, "
+                    + "adaptive.runFraction=%.3g, fewDistinct.ratio=%.3g, parallel.min=%s (%s)", insertionMax, radixMin,
+                    countingRangeFactor, adaptiveRunFraction, fewDistinctRatio,
+                    parallelMin == Integer.MAX_VALUE ? "off" : Integer.toString(parallelMin), source);
+        }
+    }
+
+    // Analyzes, chooses and sorts; the returned decision carries the analysis and sort times
+    public static Decision sort(int[] arr) {
+        return sort(arr, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    public static Decision sort(int[] arr, int parallelism) {
+        Decision decision = choose(arr, parallelism);
+        long start = System.nanoTime();
+        // The analysis already found min and max
+        if(decision.algorithm.equals("counting")) SortingAlgorithms.countingSort(arr, decision.shape.min, decision.shape.max, null);
+        else run(decision.algorithm, arr, parallelism);
+        decision.sortNanos = System.nanoTime() - start;
+        return decision;
+    }
+
+    public static Decision choose(int[] arr) {
+        return choose(arr, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    public static Decision choose(int[] arr, int parallelism) {
+        Thresholds t = thresholds();
+        long start = System.nanoTime();
+        InputShape shape = analyze(arr);
+        return choose(shape, t, parallelism, false, System.nanoTime() - start);
+    }
+
+    // Restricted to the sorts Visualizer can animate (SortingAlgorithms.sort)
+    static Decision chooseAnimated(int[] arr) {
+        Thresholds t = thresholds();
+        long start = System.nanoTime();
+        InputShape shape = analyze(arr);
+        return choose(shape, t, 1, true, System.nanoTime() - start);
+    }
+
+    public static InputShape analyze(int[] arr) {
+        int n = arr.length;
+        if(n == 0) return new InputShape(0, 0, 0, 0, 0, 0, 0);
+        int min = arr[0], max = arr[0];
+        for(int v : arr) {
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        // Runs from how often consecutive steps switch between going down and not: every run
+        // boundary is two switches (a sawtooth of r ascending runs gives exactly r). Large inputs
+        // only count the switches inside RUN_WINDOWS windows at random offsets (evenly spaced ones
+        // can alias with periodic runs) and scale up.
+        Random rand = new Random(SEED ^ n);
+        int windows = 1, window = n;
+        if(n > RUN_WINDOWS * RUN_WINDOW) {
+            windows = RUN_WINDOWS;
+            window = RUN_WINDOW;
+        }
+        long changes = 0, pairs = 0;
+        for(int w = 0; w < windows; w++) {
+            int from = windows == 1 ? 0 : rand.nextInt(n - window + 1);
+            int down = window > 1 && arr[from + 1] < arr[from] ? 1 : 0;
+            for(int i = from + 2; i < from + window; i++) {
+                int d = arr[i] < arr[i - 1] ? 1 : 0;
+                changes += d ^ down;
+                down = d;
+            }
+            pairs += Math.max(0, window - 2);
+        }
+        double switches = pairs == 0 ? 0 : (double) changes / pairs * (n - 2);
+        int runs = (int) Math.min(n, (long) ((switches + 1) / 2) + 1);
+        if(n == 1) return new InputShape(n, min, max, runs, 0, 0, 1);
+
+        int inversions = 0, pairCount = (int) Math.min(INVERSION_PAIRS, (long) n * (n - 1) / 2);
+        for(int p = 0; p < pairCount; p++) {
+            int a = rand.nextInt(n), b = rand.nextInt(n - 1);
+            if(b >= a) b++;
+            if(arr[Math.min(a, b)] > arr[Math.max(a, b)]) inversions++;
+        }
+        int[] sample;
+        if(n <= SAMPLE_SIZE) {
+            sample = arr.clone();
+        } else {
+            sample = new int[SAMPLE_SIZE];
+            for(int s = 0; s < SAMPLE_SIZE; s++) sample[s] = arr[rand.nextInt(n)];
+        }
+        SortingAlgorithms.introSort(sample);
+        int distinct = 1;
+        for(int s = 1; s < sample.length; s++) {
+            if(sample[s] != sample[s - 1]) distinct++;
+        }
+        return new InputShape(n, min, max, runs, pairCount, (double) inversions / pairCount, (double) distinct / sample.length);
+    }
+
+    // The first rule that matches wins; animated skips the sorts that have no instrumented version
+    static Decision choose(InputShape s, Thresholds t, int parallelism, boolean animated, long analysisNanos) {
+        int n = s.n;
+        if(n <= t.insertionMax) {
+            return new Decision("insertion", "n=" + n + " <= insertion.max=" + t.insertionMax, s, t, analysisNanos);
+        }
+        if(s.range() <= t.countingRangeFactor * n && s.range() <= SortingAlgorithms.COUNTING_SORT_MAX_RANGE) {
+            return new Decision("counting", String.format(Locale.ROOT, "range %d <= %.3g * n (counting.rangeFactor)",
+                    s.range(), t.countingRangeFactor), s, t, analysisNanos);
+        }
+        // Insertion sort costs n + inversions, so it wins while even the upper estimate of the
+        // inversions stays within what sorting insertion.max elements per value would cost
+        if(s.maxInversions() <= (double) t.insertionMax * n) {
+            return new Decision("insertion", String.format(Locale.ROOT, "nearly sorted, at most ~%.0f inversions "
+                    + "<= insertion.max * n", s.maxInversions()), s, t, analysisNanos);
+        }
+        // A calibrated fraction below 1/n still lets a single run through
+        if(!animated && t.adaptiveRunFraction > 0 && s.runs <= Math.max(1, t.adaptiveRunFraction * n)) {
+            return new Decision("adaptive", String.format(Locale.ROOT, "%d runs <= %.3g * n (adaptive.runFraction), "
+                    + "presorted", s.runs, t.adaptiveRunFraction), s, t, analysisNanos);
+        }
+        if(!animated && parallelism > 1 && n >= t.parallelMin) {
+            return new Decision("pquick", "n=" + n + " >= parallel.min=" + t.parallelMin + " with parallelism "
+                    + parallelism, s, t, analysisNanos);
+        }
+        if(!animated && s.distinctRatio <= t.fewDistinctRatio) {
+            return new Decision("intro", String.format(Locale.ROOT, "%.1f%% distinct in the sample <= fewDistinct.ratio=%.1f%%, "
+                    + "three-way partitioning", 100 * s.distinctRatio, 100 * t.fewDistinctRatio), s, t, analysisNanos);
+        }
+        if(n >= t.radixMin) {
+            return new Decision("radix", "n=" + n + " >= radix.min=" + t.radixMin + ", wide range", s, t, analysisNanos);
+        }
+        return new Decision(animated ? "merge" : "intro", "n=" + n + " < radix.min=" + t.radixMin, s, t, analysisNanos);
+    }
+
+    static void run(String algorithm, int[] arr, int parallelism) {
+        switch(algorithm) {
+            case "insertion": SortingAlgorithms.insertionSort(arr); break;
+            case "counting": SortingAlgorithms.countingSort(arr); break;
+            case "adaptive": SortingAlgorithms.adaptiveMergeSort(arr); break;
+            case "pquick": SortingAlgorithms.parallelQuickSort(arr, SortingAlgorithms.PARALLEL_CUTOFF, parallelism); break;
+            case "radix": SortingAlgorithms.radixSort(arr); break;
+            case "intro": SortingAlgorithms.introSort(arr); break;
+            default: throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+    }
+
+    // Profile
+
+    static Thresholds thresholds() {
+        Thresholds t = loaded;
+        if(t == null) {
+            t = load(profilePath());
+            loaded = t;
+        }
+        return t;
+    }
+
+    static Path profilePath() {
+        String path = System.getProperty("sort.profile");
+        if(path != null) return Paths.get(path);
+        return Paths.get(System.getProperty("user.home"), ".sortingvisualizer", "autosort.properties");
+    }
+
+    // Defaults when the file is missing, unreadable or was calibrated on different hardware
+    static Thresholds load(Path path) {
+        Thresholds defaults = new Thresholds();
+        if(!Files.exists(path)) {
+            defaults.source = "built-in defaults, no profile at " + path;
+            return defaults;
+        }
+        Properties p = new Properties();
+        try(Reader in = Files.newBufferedReader(path)) {
+            p.load(in);
+            String cpus = Integer.toString(Runtime.getRuntime().availableProcessors());
+            if(!cpus.equals(p.getProperty("machine.cpus")) || !System.getProperty("os.arch").equals(p.getProperty("machine.arch"))) {
+                defaults.source = "built-in defaults, " + path + " was calibrated on " + p.getProperty("machine.cpus")
+                        + " cpus/" + p.getProperty("machine.arch");
+                return defaults;
+            }
+            return Thresholds.fromProperties(p, "profile " + path + ", calibrated " + p.getProperty("calibrated"));
+        } catch(IOException | RuntimeException e) {
+            defaults.source = "built-in defaults, unreadable profile " + path + " (" + e + ")";
+            return defaults;
+        }
+    }
+
+    static void save(Thresholds t, Path path) throws IOException {
+        if(path.getParent() != null) Files.createDirectories(path.getParent());
+        try(Writer out = Files.newBufferedWriter(path)) {
+            t.toProperties().store(out, "AutoSorter thresholds for this machine; rerun AutoSorter --calibrate after hardware changes");
+        }
+        t.source = "profile " + path;
+        loaded = t;
+    }
+
+    // Calibration
+    // Each threshold is the last point of a sweep where the specialised sort still beats the
+    // general one it would replace (or the first from which it always does). Points are timed as
+    // the best of a few rounds of copy + sort, so both sides pay the same copy.
+
+    private static final int ROUNDS = 3;
+    private static final long ROUND_NANOS = 20_000_000;
+
+    static Thresholds calibrate(PrintStream log) {
+        Thresholds t = new Thresholds();
+        t.source = "calibrated";
+        Random rand = new Random(SEED);
+        warmUp(rand);
+
+        log.println("insertion vs intro on random input (insertion.max):");
+        t.insertionMax = lastWin(new int[]{8, 16, 24, 32, 48, 64, 96, 128, 192}, n -> randomInts(rand, n),
+                SortingAlgorithms::insertionSort, SortingAlgorithms::introSort, log);
+
+        log.println("radix vs intro on random input (radix.min):");
+        int[] sizes = {64, 256, 1024, 4096, 16384, 65536, 262144, 1 << 20};
+        t.radixMin = firstLastingWin(sizes, n -> randomInts(rand, n), SortingAlgorithms::radixSort,
+                SortingAlgorithms::introSort, log);
+
+        int n = 1 << 16;
+        log.println("counting vs " + general(n, t) + " at n=" + n + " by range / n (counting.rangeFactor):");
+        double[] factors = {0.5, 1, 2, 4, 8, 16, 32, 64};
+        int wins = lastWinIndex(factors.length, i -> valuesBelow(rand, n, (int) (factors[i] * n)),
+                SortingAlgorithms::countingSort, generalSort(n, t), i -> "range=" + factors[i] + "n", log);
+        t.countingRangeFactor = wins < 0 ? 0 : factors[wins];
+
+        int m = 1 << 18;
+        log.println("adaptive vs " + general(m, t) + " at n=" + m + " by runs / n (adaptive.runFraction):");
+        double[] fractions = {1.0 / m, 2.0 / m, 4.0 / m, 1.0 / 16384, 1.0 / 4096, 1.0 / 1024, 1.0 / 256, 1.0 / 64, 1.0 / 16, 1.0 / 4};
+        wins = lastWinIndex(fractions.length, i -> sortedRuns(rand, m, (int) (fractions[i] * m)),
+                SortingAlgorithms::adaptiveMergeSort, generalSort(m, t), i -> "runs=" + Math.max(1, Math.round(fractions[i] * m)), log);
+        t.adaptiveRunFraction = wins < 0 ? 0 : fractions[wins];
+
+        log.println("intro vs " + general(m, t) + " at n=" + m + " by distinct values (fewDistinct.ratio):");
+        int[] distinct = {2, 8, 32, 128, 512, 2048, 8192, 32768};
+        int[][] inputs = new int[distinct.length][];
+        for(int i = 0; i < distinct.length; i++) inputs[i] = fewDistinct(rand, m, distinct[i]);
+        wins = lastWinIndex(distinct.length, i -> inputs[i], SortingAlgorithms::introSort, generalSort(m, t),
+                i -> String.format(Locale.ROOT, "%d distinct (%.1f%% of sample)", distinct[i], 100 * analyze(inputs[i]).distinctRatio), log);
+        t.fewDistinctRatio = wins < 0 ? 0 : analyze(inputs[wins]).distinctRatio;
+
+        if(Runtime.getRuntime().availableProcessors() > 1) {
+            log.println("pquick vs the sequential choice on random input (parallel.min):");
+            int[] big = {1 << 14, 1 << 16, 1 << 18, 1 << 20, 1 << 22};
+            Thresholds sequential = t;
+            t.parallelMin = firstLastingWin(big, k -> randomInts(rand, k), SortingAlgorithms::parallelQuickSort,
+                    arr -> generalSort(arr.length, sequential).accept(arr), log);
+        } else {
+            t.parallelMin = Integer.MAX_VALUE;
+            log.println("parallel.min: off, one cpu");
+        }
+        return t;
+    }
+
+    private static void warmUp(Random rand) {
+        int[] input = randomInts(rand, 1 << 16), narrow = valuesBelow(rand, 1 << 16, 1 << 16);
+        for(int r = 0; r < 10; r++) {
+            SortingAlgorithms.introSort(input.clone());
+            SortingAlgorithms.radixSort(input.clone());
+            SortingAlgorithms.adaptiveMergeSort(input.clone());
+            SortingAlgorithms.countingSort(narrow.clone());
+        }
+        int[] small = randomInts(rand, 64);
+        for(int r = 0; r < 20_000; r++) {
+            SortingAlgorithms.insertionSort(small.clone());
+            SortingAlgorithms.introSort(small.clone());
+        }
+    }
+
+    // The sort choose() falls back to for random data of size n
+    private static String general(int n, Thresholds t) {
+        return n >= t.radixMin ? "radix" : "intro";
+    }
+
+    private static Consumer<int[]> generalSort(int n, Thresholds t) {
+        return n >= t.radixMin ? SortingAlgorithms::radixSort : SortingAlgorithms::introSort;
+    }
+
+    // Largest size up to which a keeps beating b, or the first size minus one when it never does
+    private static int lastWin(int[] sizes, IntFunction<int[]> input, Consumer<int[]> a, Consumer<int[]> b, PrintStream log) {
+        int i = lastWinIndex(sizes.length, k -> input.apply(sizes[k]), a, b, k -> "n=" + sizes[k], log);
+        return i < 0 ? sizes[0] - 1 : sizes[i];
+    }
+
+    // Smallest size from which a beats b at every larger size too; MAX_VALUE when it never settles
+    private static int firstLastingWin(int[] sizes, IntFunction<int[]> input, Consumer<int[]> a, Consumer<int[]> b, PrintStream log) {
+        int first = Integer.MAX_VALUE;
+        for(int k = sizes.length - 1; k >= 0; k--) {
+            int[] arr = input.apply(sizes[k]);
+            double ta = time(a, arr), tb = time(b, arr);
+            log.printf(Locale.ROOT, "  n=%-8d %12.2f us %12.2f us%n", sizes[k], ta / 1e3, tb / 1e3);
+            if(ta >= tb) break;
+            first = sizes[k];
+        }
+        return first;
+    }
+
+    // Index of the last point of the prefix where a beats b, -1 if it loses at the first point
+    private static int lastWinIndex(int points, IntFunction<int[]> input, Consumer<int[]> a, Consumer<int[]> b,
+                                    IntFunction<String> label, PrintStream log) {
+        for(int k = 0; k < points; k++) {
+            int[] arr = input.apply(k);
+            double ta = time(a, arr), tb = time(b, arr);
+            log.printf(Locale.ROOT, "  %-32s %12.2f us %12.2f us%n", label.apply(k), ta / 1e3, tb / 1e3);
+            if(ta >= tb) return k - 1;
+        }
+        return points - 1;
+    }
+
+    // Mean nanos of one copy + sort, best of ROUNDS rounds of at least ROUND_NANOS each. Small
+    // inputs are sorted in batches between clock reads so nanoTime does not swamp them.
+    private static double time(Consumer<int[]> sort, int[] input) {
+        int[] work = new int[input.length];
+        int batch = Math.max(1, 4096 / Math.max(1, input.length));
+        double best = Double.MAX_VALUE;
+        for(int r = 0; r < ROUNDS; r++) {
+            long start = System.nanoTime(), now;
+            int reps = 0;
+            do {
+                for(int b = 0; b < batch; b++) {
+                    System.arraycopy(input, 0, work, 0, input.length);
+                    sort.accept(work);
+                }
+                reps += batch;
+                now = System.nanoTime();
+            } while(now - start < ROUND_NANOS);
+            best = Math.min(best, (double) (now - start) / reps);
+        }
+        return best;
+    }
+
+    private static int[] randomInts(Random rand, int n) {
+        int[] arr = new int[n];
+        for(int i = 0; i < n; i++) arr[i] = rand.nextInt();
+        return arr;
+    }
+
+    private static int[] valuesBelow(Random rand, int n, int bound) {
+        int[] arr = new int[n];
+        for(int i = 0; i < n; i++) arr[i] = rand.nextInt(Math.max(1, bound));
+        return arr;
+    }
+
+    // Random values in the given number of ascending runs
+    private static int[] sortedRuns(Random rand, int n, int runs) {
+        int[] arr = randomInts(rand, n);
+        runs = Math.max(1, runs);
+        for(int r = 0; r < runs; r++) {
+            Arrays.sort(arr, (int) ((long) r * n / runs), (int) ((long) (r + 1) * n / runs));
+        }
+        return arr;
+    }
+
+    private static int[] fewDistinct(Random rand, int n, int distinct) {
+        int[] values = randomInts(rand, distinct);
+        int[] arr = new int[n];
+        for(int i = 0; i < n; i++) arr[i] = values[rand.nextInt(distinct)];
+        return arr;
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean calibrate = false;
+        Path profile = profilePath();
+        int[] sizes = {1_000, 100_000, 1_000_000};
+        String[] shapes = {"random", "sorted", "reverse", "fewunique", "mostlysorted", "appended", "skewed", "duplicates"};
+        for(int a = 0; a < args.length; a++) {
+            switch(args[a]) {
+                case "--calibrate": calibrate = true; break;
+                case "--profile": profile = Paths.get(args[++a]); break;
+                case "--sizes": sizes = Arrays.stream(args[++a].split(",")).mapToInt(s -> (int) Double.parseDouble(s)).toArray(); break;
+                case "--shapes": shapes = args[++a].split(","); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[a]);
+            }
+        }
+        if(calibrate) {
+            long start = System.nanoTime();
+            Thresholds t = calibrate(System.out);
+            save(t, profile);
+            System.out.printf(Locale.ROOT, "calibrated in %.1f s, saved to %s%n%s%n", (System.nanoTime() - start) / 1e9, profile, t);
+            return;
+        }
+        loaded = load(profile);
+        System.out.println("thresholds: " + loaded);
+        // Decisions per shape, timed against a fixed intro sort of the same input
+        System.out.printf("%-13s %9s %-10s %11s %11s %11s  %s%n", "Shape", "Size", "Choice", "Analyze ms", "Sort ms",
+                "Intro ms", "Reason");
+        for(String shape : shapes) {
+            for(int size : sizes) {
+                int[] input = Benchmark.generate(size, shape, SEED);
+                for(int r = 0; r < 3; r++) {
+                    sort(input.clone());
+                    SortingAlgorithms.introSort(input.clone());
+                }
+                int[] arr = input.clone();
+                Decision d = sort(arr);
+                int[] reference = input.clone();
+                long start = System.nanoTime();
+                SortingAlgorithms.introSort(reference);
+                long intro = System.nanoTime() - start;
+                if(!Arrays.equals(arr, reference)) throw new IllegalStateException(d.algorithm + " did not sort " + shape);
+                System.out.printf(Locale.ROOT, "%-13s %9d %-10s %11.3f %11.3f %11.3f  %s%n", shape, size, d.algorithm,
+                        d.analysisNanos / 1e6, d.sortNanos / 1e6, intro / 1e6, d.reason);
+            }
+        }
+    }
+}
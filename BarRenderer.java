@@ -0,0 +1,222 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+// Draws arrays with more elements than comfortably fit as per-element bars. Bars are written
+// straight into an int[] pixel raster; when several elements share a pixel column the column
+// shows their min (dark), average (base) and max (light). Only columns holding elements that
+// changed since the last frame are redrawn, and the max used for scaling is kept up to date
+// from the individual changes instead of rescanning the array on every paint.
+public final class BarRenderer implements TracePlayer.Listener {
+    private static final int BACKGROUND = 0xFFFFFF;
+    private static final int[] BLUE = tones(0x0000FF);
+    private static final int[] RED = tones(0xFF0000);
+    private static final int[] GREEN = tones(0x00C000);
+    private static final int[] OUT_OF_RANGE = tones(0x96AADC);
+
+    private int[] array = new int[0];
+    private int max = 1;
+    private boolean maxStale = true;
+
+    private BufferedImage image;
+    private int[] pixels;
+    private int width, height;
+    private boolean fullRedraw = true;
+    private boolean[] dirty = new boolean[0];
+    private int[] dirtyColumns = new int[0];
+    private int dirtyCount;
+
+    private int lastCompareA = -1, lastCompareB = -1;
+    private int lastSortedUpto = -1, lastRangeLow = -1, lastRangeHigh = -1;
+
+    private long fpsWindowStart = System.nanoTime();
+    private int framesInWindow;
+    private double fps;
+
+    // dark (min), base (avg), light (max) shades of a colour
+    private static int[] tones(int rgb) {
+        Color base = new Color(rgb);
+        Color dark = base.darker();
+        int light = ((((rgb >> 16) & 0xFF) + 255) / 2) << 16
+                | ((((rgb >> 8) & 0xFF) + 255) / 2) << 8
+                | (((rgb & 0xFF) + 255) / 2);
+        return new int[]{dark.getRGB() & 0xFFFFFF, rgb, light};
+    }
+
+    public void setArray(int[] array) {
+        this.array = array;
+        arrayReplaced();
+    }
+
+    @Override
+    public void elementChanged(int index, int oldValue, int newValue) {
+        if(newValue > max) {
+            max = newValue;
+            fullRedraw = true;
+        } else if(oldValue == max && newValue < max) {
+            maxStale = true;
+        }
+        markIndex(index);
+    }
+
+    @Override
+    public void arrayReplaced() {
+        maxStale = true;
+        fullRedraw = true;
+    }
+
+    public int maxValue() {
+        if(maxStale) {
+            int newMax = 1;
+            for(int v : array) newMax = Math.max(newMax, v);
+            if(newMax != max) fullRedraw = true;
+            max = newMax;
+            maxStale = false;
+        }
+        return max;
+    }
+
+    public double fps() {
+        return fps;
+    }
+
+    // Takes in the current size and highlights and returns the area that has to be repainted,
+    // or null when nothing changed since the last paint
+    public Rectangle prepare(int w, int h, int compareA, int compareB, int sortedUpto,
+                             int rangeLow, int rangeHigh) {
+        if(w <= 0 || h <= 0) return null;
+        if(image == null || w != width || h != height) {
+            width = w;
+            height = h;
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            dirty = new boolean[w];
+            dirtyColumns = new int[w];
+            dirtyCount = 0;
+            fullRedraw = true;
+        }
+        maxValue();
+        if(sortedUpto != lastSortedUpto || rangeLow != lastRangeLow || rangeHigh != lastRangeHigh) {
+            fullRedraw = true;
+        }
+        if(compareA != lastCompareA || compareB != lastCompareB) {
+            markIndex(lastCompareA);
+            markIndex(lastCompareB);
+            markIndex(compareA);
+            markIndex(compareB);
+        }
+        lastCompareA = compareA;
+        lastCompareB = compareB;
+        lastSortedUpto = sortedUpto;
+        lastRangeLow = rangeLow;
+        lastRangeHigh = rangeHigh;
+
+        if(fullRedraw) return new Rectangle(0, 0, width, height);
+        if(dirtyCount == 0) return null;
+        int from = width, to = -1;
+        for(int k = 0; k < dirtyCount; k++) {
+            from = Math.min(from, dirtyColumns[k]);
+            to = Math.max(to, dirtyColumns[k]);
+        }
+        return new Rectangle(from, 0, to - from + 1, height);
+    }
+
+    // Redraws the pending columns into the raster and copies it to g (Swing clips the copy to
+    // the repaint area)
+    public void paint(Graphics g) {
+        if(image == null) return;
+        if(fullRedraw) {
+            for(int c = 0; c < width; c++) drawColumn(c);
+            fullRedraw = false;
+        } else {
+            for(int k = 0; k < dirtyCount; k++) drawColumn(dirtyColumns[k]);
+        }
+        for(int k = 0; k < dirtyCount; k++) dirty[dirtyColumns[k]] = false;
+        dirtyCount = 0;
+
+        g.drawImage(image, 0, 0, null);
+        countFrame();
+    }
+
+    // Columns showing array[index]; several when there are fewer elements than pixels
+    private void markIndex(int index) {
+        int n = array.length;
+        if(index < 0 || index >= n || width == 0 || fullRedraw) return;
+        int from, to;
+        if(n >= width) {
+            from = (int) (((long) (index + 1) * width - 1) / n);
+            to = from + 1;
+        } else {
+            from = (int) (((long) index * width + n - 1) / n);
+            to = (int) Math.min(width, ((long) (index + 1) * width + n - 1) / n);
+        }
+        for(int c = from; c < to; c++) {
+            if(!dirty[c]) {
+                dirty[c] = true;
+                dirtyColumns[dirtyCount++] = c;
+            }
+        }
+    }
+
+    private void drawColumn(int c) {
+        int n = array.length;
+        int lo = (int) ((long) c * n / width);
+        int hi = Math.max(lo + 1, (int) ((long) (c + 1) * n / width));
+        if(lo >= n) {
+            fillColumn(c, 0, 0, 0, BLUE);
+            return;
+        }
+        hi = Math.min(hi, n);
+
+        int min = Integer.MAX_VALUE, colMax = Integer.MIN_VALUE;
+        long sum = 0;
+        boolean highlighted = false;
+        for(int i = lo; i < hi; i++) {
+            int v = array[i];
+            if(v < min) min = v;
+            if(v > colMax) colMax = v;
+            sum += v;
+            if(i == lastCompareA || i == lastCompareB) highlighted = true;
+        }
+        int[] palette;
+        if(highlighted) palette = RED;
+        else if(hi - 1 <= lastSortedUpto) palette = GREEN;
+        else if(lastRangeLow >= 0 && (hi - 1 < lastRangeLow || lo > lastRangeHigh)) palette = OUT_OF_RANGE;
+        else palette = BLUE;
+
+        if(hi - lo == 1) {
+            fillColumn(c, 0, scale(colMax), scale(colMax), palette);
+        } else {
+            fillColumn(c, scale(min), scale((int) (sum / (hi - lo))), scale(colMax), palette);
+        }
+    }
+
+    private int scale(int value) {
+        if(value <= 0) return 0;
+        return (int) Math.min(height, (long) value * height / max);
+    }
+
+    // Bottom-up: min height in the dark shade, up to avg in the base shade, up to max in the light shade
+    private void fillColumn(int c, int minHeight, int avgHeight, int maxHeight, int[] palette) {
+        for(int y = 0; y < height; y++) {
+            int fromBottom = height - y;
+            int rgb;
+            if(fromBottom > maxHeight) rgb = BACKGROUND;
+            else if(fromBottom > avgHeight) rgb = palette[2];
+            else if(fromBottom > minHeight) rgb = palette[1];
+            else rgb = palette[0];
+            pixels[y * width + c] = rgb;
+        }
+    }
+
+    private void countFrame() {
+        framesInWindow++;
+        long now = System.nanoTime();
+        long elapsed = now - fpsWindowStart;
+        if(elapsed >= 1_000_000_000L) {
+            fps = framesInWindow * 1e9 / elapsed;
+            framesInWindow = 0;
+            fpsWindowStart = now;
+        }
+    }
+}
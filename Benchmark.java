@@ -1,16 +1,623 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.function.Consumer;
+
 public class Benchmark {
+    static final String[] SHAPES = {"random", "sorted", "reverse", "fewunique", "organpipe", "mostlysorted", "appended"};
+    static final int[] SIZES = {1_000, 10_000, 100_000, 1_000_000};
+
+    // Quadratic sorts are skipped above this size, they would take minutes per iteration
+    static final int QUADRATIC_LIMIT = 10_000;
+
+    private static final long SEED = 42;
+
+    static int forks = 1;
+    static int warmupIterations = 5;
+    static int measureIterations = 10;
+    static long iterationMillis = 200;
+    static boolean csv = false;
+
+    // Common-pool parallelism levels to fork with; empty means the JVM default
+    static int[] threads = {};
+
+    static Map<String, Consumer<int[]>> algorithms() {
+        Map<String, Consumer<int[]>> algos = new LinkedHashMap<>();
+        algos.put("bubble", SortingAlgorithms::bubbleSort);
+        algos.put("selection", SortingAlgorithms::selectionSort);
+        algos.put("insertion", SortingAlgorithms::insertionSort);
+        algos.put("merge", SortingAlgorithms::mergeSort);
+        algos.put("quick", SortingAlgorithms::quickSort);
+        // Probe overhead: quick runs with the probe disabled (null), quickraw is the same
+        // partitioning with no probe code at all, quickcounted counts into SortCounters
+        algos.put("quickraw", arr -> rawQuickSort(arr, 0, arr.length - 1));
+        algos.put("quickcounted", arr -> SortingAlgorithms.quickSort(arr, new SortCounters()));
+        algos.put("bmerge", reusingBufferMergeSort());
+        algos.put("intro", SortingAlgorithms::introSort);
+        algos.put("adaptive", SortingAlgorithms::adaptiveMergeSort);
+        // Sorting-network kernels: Vector API when built and enabled (see SortKernels), scalar otherwise
+        algos.put("kintro", SortingAlgorithms::kernelIntroSort);
+        algos.put("kintroscalar", arr -> SortingAlgorithms.kernelIntroSort(arr, SortKernels.scalar()));
+        algos.put("kmerge", SortingAlgorithms::kernelMergeSort);
+        algos.put("kmergescalar", arr -> SortingAlgorithms.kernelMergeSort(arr, SortKernels.scalar()));
+        algos.put("counting", SortingAlgorithms::countingSort);
+        algos.put("radix", SortingAlgorithms::radixSort);
+        algos.put("radix11", arr -> SortingAlgorithms.radixSort(arr, 11));
+        algos.put("americanflag", SortingAlgorithms::americanFlagSort);
+        algos.put("integer", SortingAlgorithms::integerSort);
+        algos.put("pmerge", SortingAlgorithms::parallelMergeSort);
+        algos.put("pquick", SortingAlgorithms::parallelQuickSort);
+        algos.put("long", primitiveKeys("long", false));
+        algos.put("longboxed", primitiveKeys("long", true));
+        algos.put("double", primitiveKeys("double", false));
+        algos.put("doubleboxed", primitiveKeys("double", true));
+        algos.put("float", primitiveKeys("float", false));
+        algos.put("floatboxed", primitiveKeys("float", true));
+        algos.put("short", primitiveKeys("short", false));
+        algos.put("shortboxed", primitiveKeys("short", true));
+        algos.put("argsort", primitiveKeys("argsort", false));
+        algos.put("argsortboxed", primitiveKeys("argsort", true));
+        // Objects by two or three fields: extracted, packed keys against a Comparator chain
+        algos.put("records2", records(2, false));
+        algos.put("records2cmp", records(2, true));
+        algos.put("records3", records(3, false));
+        algos.put("records3cmp", records(3, true));
+        // Selection instead of a full sort; compare against intro
+        algos.put("nth", selection("nth"));
+        algos.put("partial100", selection("partial100"));
+        algos.put("topk100", selection("topk100"));
+        algos.put("percentiles", selection("percentiles"));
+        // One batch of 4096 arriving at values that are already sorted
+        algos.put("incremental", new Incremental(4096, false));
+        algos.put("resort", new Incremental(4096, true));
+        // Chosen per input from its shape and this machine's calibrated thresholds
+        algos.put("auto", AutoSorter::sort);
+        algos.put("arrays", Arrays::sort);
+        algos.put("parallelsort", Arrays::parallelSort);
+        return algos;
+    }
+
+    // SortingAlgorithms.quickSort with the probe calls removed
+    private static void rawQuickSort(int[] arr, int low, int high) {
+        if(low < high) {
+            int pivot = arr[high];
+            int i = low - 1;
+            for(int j = low; j < high; j++) {
+                if(arr[j] < pivot) {
+                    i++;
+                    int temp = arr[i];
+                    arr[i] = arr[j];
+                    arr[j] = temp;
+                }
+            }
+            int temp = arr[i + 1];
+            arr[i + 1] = arr[high];
+            arr[high] = temp;
+            rawQuickSort(arr, low, i);
+            rawQuickSort(arr, i + 2, high);
+        }
+    }
+
+    // An operation that leaves the array in some valid state other than sorted
+    interface Checked extends Consumer<int[]> {
+        boolean check(int[] result);
+    }
+
+    // An operation that starts from state built from the input, outside the timed calls
+    interface Prepared extends Consumer<int[]> {
+        void prepare(int[] input);
+    }
+
+    private static Checked selection(String kind) {
+        int k = 100;
+        int[][] top = {null};
+        return new Checked() {
+            @Override
+            public void accept(int[] arr) {
+                switch(kind) {
+                    case "nth": SortingAlgorithms.nthElement(arr, arr.length / 2); break;
+                    case "partial100": SortingAlgorithms.partialSort(arr, Math.min(k, arr.length)); break;
+                    case "topk100": top[0] = SortingAlgorithms.topK(Arrays.stream(arr), k); break;
+                    case "percentiles": SortingAlgorithms.percentiles(arr, 50, 90, 99, 99.9); break;
+                    default: throw new IllegalArgumentException("Unknown selection: " + kind);
+                }
+            }
+
+            // Checked in place so the allocation column only shows the selection itself
+            @Override
+            public boolean check(int[] result) {
+                int n = result.length;
+                switch(kind) {
+                    case "nth": {
+                        int m = n / 2;
+                        for(int i = 0; i < n; i++) {
+                            if(i < m ? result[i] > result[m] : result[i] < result[m]) return false;
+                        }
+                        return true;
+                    }
+                    case "partial100": {
+                        int m = Math.min(k, n);
+                        for(int i = 1; i < m; i++) if(result[i - 1] > result[i]) return false;
+                        for(int i = m; i < n; i++) if(result[i] < result[m - 1]) return false;
+                        return true;
+                    }
+                    case "topk100": {
+                        int[] t = top[0];
+                        if(t.length != Math.min(k, n) || !isSorted(t)) return false;
+                        if(t.length == 0) return true;
+                        // t holds k values and no value of the input below its largest is missing
+                        int below = 0, atMost = 0;
+                        for(int v : result) {
+                            if(v < t[t.length - 1]) below++;
+                            if(v <= t[t.length - 1]) atMost++;
+                        }
+                        return below < t.length && atMost >= t.length;
+                    }
+                    default: return true;
+                }
+            }
+        };
+    }
+
+    // Primitive key sorts against boxing the same keys and sorting them with a Comparator, the way
+    // record-based code does. Keys are derived from the int input (timestamps, prices, ...) and
+    // written back in order, on both sides, so every variant pays the same conversions.
+    private static Consumer<int[]> primitiveKeys(String type, boolean boxed) {
+        final long epochMillis = 1_700_000_000_000L;
+        switch(type) {
+            case "long": return arr -> {
+                long[] keys = new long[arr.length];
+                for(int i = 0; i < arr.length; i++) keys[i] = epochMillis + arr[i];
+                if(boxed) {
+                    Long[] box = new Long[keys.length];
+                    for(int i = 0; i < keys.length; i++) box[i] = keys[i];
+                    Arrays.sort(box, Comparator.naturalOrder());
+                    for(int i = 0; i < keys.length; i++) keys[i] = box[i];
+                } else {
+                    SortingAlgorithms.radixSort(keys);
+                }
+                for(int i = 0; i < arr.length; i++) arr[i] = (int) (keys[i] - epochMillis);
+            };
+            case "double": return arr -> {
+                double[] keys = new double[arr.length];
+                for(int i = 0; i < arr.length; i++) keys[i] = arr[i] / 100.0;
+                if(boxed) {
+                    Double[] box = new Double[keys.length];
+                    for(int i = 0; i < keys.length; i++) box[i] = keys[i];
+                    Arrays.sort(box, Comparator.naturalOrder());
+                    for(int i = 0; i < keys.length; i++) keys[i] = box[i];
+                } else {
+                    SortingAlgorithms.radixSort(keys);
+                }
+                for(int i = 0; i < arr.length; i++) arr[i] = (int) Math.round(keys[i] * 100);
+            };
+            case "float": return arr -> {
+                // float has 24 bits of mantissa; dropping the low byte keeps the order exact
+                float[] keys = new float[arr.length];
+                for(int i = 0; i < arr.length; i++) keys[i] = arr[i] >> 8;
+                if(boxed) {
+                    Float[] box = new Float[keys.length];
+                    for(int i = 0; i < keys.length; i++) box[i] = keys[i];
+                    Arrays.sort(box, Comparator.naturalOrder());
+                    for(int i = 0; i < keys.length; i++) keys[i] = box[i];
+                } else {
+                    SortingAlgorithms.radixSort(keys);
+                }
+                for(int i = 0; i < arr.length; i++) arr[i] = (int) keys[i];
+            };
+            case "short": return arr -> {
+                short[] keys = new short[arr.length];
+                for(int i = 0; i < arr.length; i++) keys[i] = (short) (arr[i] >> 16);
+                if(boxed) {
+                    Short[] box = new Short[keys.length];
+                    for(int i = 0; i < keys.length; i++) box[i] = keys[i];
+                    Arrays.sort(box, Comparator.naturalOrder());
+                    for(int i = 0; i < keys.length; i++) keys[i] = box[i];
+                } else {
+                    SortingAlgorithms.countingSort(keys);
+                }
+                for(int i = 0; i < arr.length; i++) arr[i] = keys[i];
+            };
+            case "argsort": return arr -> {
+                // Sort record indices by a long key and gather the records in that order
+                long[] keys = new long[arr.length];
+                for(int i = 0; i < arr.length; i++) keys[i] = epochMillis + arr[i];
+                int[] order;
+                if(boxed) {
+                    Integer[] box = new Integer[keys.length];
+                    for(int i = 0; i < keys.length; i++) box[i] = i;
+                    Arrays.sort(box, Comparator.comparingLong(i -> keys[i]));
+                    order = new int[keys.length];
+                    for(int i = 0; i < keys.length; i++) order[i] = box[i];
+                } else {
+                    order = SortingAlgorithms.argsort(keys);
+                }
+                int[] gathered = new int[arr.length];
+                for(int i = 0; i < arr.length; i++) gathered[i] = arr[order[i]];
+                System.arraycopy(gathered, 0, arr, 0, arr.length);
+            };
+            default: throw new IllegalArgumentException("Unknown key type: " + type);
+        }
+    }
+
+    // Mirrors a long-lived worker: the scratch buffer is only reallocated when an input outgrows it
+    private static Consumer<int[]> reusingBufferMergeSort() {
+        int[][] buffer = {new int[0]};
+        return arr -> {
+            if(buffer[0].length < arr.length) buffer[0] = new int[arr.length];
+            SortingAlgorithms.mergeSort(arr, buffer[0]);
+        };
+    }
+
+    // A record with a few sort fields, cut out of an input value so that ordering by the fields
+    // in turn is the same as ordering by the value, which is written back for the check
+    private static final class Row {
+        final int group, seq, value;
+        final long time;
+
+        Row(int value, int fields) {
+            this.value = value;
+            if(fields == 2) {
+                group = value >> 16;
+                time = 0;
+                seq = value & 0xFFFF;
+            } else {
+                group = value >> 24;
+                time = 1_700_000_000_000L + ((value >>> 8) & 0xFFFF);
+                seq = value & 0xFF;
+            }
+        }
+    }
+
+    private static Consumer<int[]> records(int fields, boolean comparator) {
+        Comparator<Row> byFields = fields == 2
+                ? Comparator.comparingInt((Row r) -> r.group).thenComparingInt(r -> r.seq)
+                : Comparator.comparingInt((Row r) -> r.group).thenComparingLong(r -> r.time).thenComparingInt(r -> r.seq);
+        return arr -> {
+            Row[] rows = new Row[arr.length];
+            for(int i = 0; i < arr.length; i++) rows[i] = new Row(arr[i], fields);
+            if(comparator) Arrays.sort(rows, byFields);
+            else if(fields == 2) SortingAlgorithms.sort(rows, r -> r.group, r -> r.seq);
+            else SortingAlgorithms.sort(rows, r -> r.group, r -> r.time, r -> r.seq);
+            for(int i = 0; i < arr.length; i++) arr[i] = rows[i].value;
+        };
+    }
+
+    // The last batch of the input arriving after the rest is already sorted. Incremental appends it
+    // to a SortedRuns built from the rest in batches; the SortedRuns keeps every batch and starts
+    // over from that base once it has doubled, so compaction is amortized as it would be in use.
+    // Resort is the alternative: the rest kept as a sorted array, and the batch appended and the
+    // whole array sorted again.
+    private static final class Incremental implements Prepared, Checked {
+        private final int batch;
+        private final boolean resort;
+        private int from;
+        private SortedRuns base, runs;
+        private int[] appended;
+
+        Incremental(int batch, boolean resort) {
+            this.batch = batch;
+            this.resort = resort;
+        }
+
+        @Override
+        public void prepare(int[] input) {
+            from = Math.max(0, input.length - batch);
+            if(resort) {
+                appended = input.clone();
+                int[] rest = Arrays.copyOf(input, from);
+                SortingAlgorithms.integerSort(rest);
+                System.arraycopy(rest, 0, appended, 0, from);
+                return;
+            }
+            base = new SortedRuns();
+            for(int i = 0; i < from; i += batch) base.add(input, i, Math.min(from, i + batch));
+            runs = base.copy();
+        }
+
+        @Override
+        public void accept(int[] arr) {
+            if(resort) {
+                System.arraycopy(appended, 0, arr, 0, arr.length);
+                SortingAlgorithms.integerSort(arr);
+                return;
+            }
+            if(runs.size() >= 2 * Math.max(base.size(), batch)) runs = base.copy();
+            runs.add(arr, from, arr.length);
+        }
+
+        @Override
+        public boolean check(int[] result) {
+            return resort ? isSorted(result) : isSorted(runs.toSortedArray());
+        }
+    }
+
+    static boolean isQuadratic(String algo) {
+        return algo.equals("bubble") || algo.equals("selection") || algo.equals("insertion");
+    }
+
+    // The Lomuto quick sorts pivot on the last element, so presorted input makes them quadratic
+    // and recurse about n deep; their two-way partition also degrades on many equal values
+    // (skewed, duplicates: 8-20x random at 1e7). Only random input is safe at every size.
+    static boolean isQuadratic(String algo, String shape) {
+        if(isQuadratic(algo)) return true;
+        boolean lomuto = algo.equals("quick") || algo.equals("quickraw") || algo.equals("quickcounted");
+        return lomuto && !shape.equals("random");
+    }
+
+    // Input generators, seeded so every fork sorts exactly the same data
+    public static int[] generate(int size, String shape, long seed) {
+        int[] arr = new int[size];
+        Random rand = new Random(seed);
+        switch(shape) {
+            case "sorted":
+                for(int i = 0; i < size; i++) arr[i] = i;
+                break;
+            case "reverse":
+                for(int i = 0; i < size; i++) arr[i] = size - i;
+                break;
+            case "fewunique":
+                for(int i = 0; i < size; i++) arr[i] = rand.nextInt(8);
+                break;
+            case "organpipe":
+                for(int i = 0; i < size; i++) arr[i] = Math.min(i, size - 1 - i);
+                break;
+            case "mostlysorted":
+                for(int i = 0; i < size; i++) arr[i] = i;
+                for(int k = 0; size > 0 && k < size / 100 + 1; k++) {
+                    int a = rand.nextInt(size), b = rand.nextInt(size);
+                    int temp = arr[a];
+                    arr[a] = arr[b];
+                    arr[b] = temp;
+                }
+                break;
+            case "appended":
+                // Sorted data with ~1% random values appended, like new timestamps after a load
+                int tail = size / 100 + 1;
+                for(int i = 0; i < size; i++) arr[i] = i < size - tail ? i : rand.nextInt(Math.max(1, size));
+                break;
+            case "random":
+                for(int i = 0; i < size; i++) arr[i] = rand.nextInt();
+                break;
+            case "skewed":
+                // Most values small, a long thin tail of large ones (roughly power-law)
+                for(int i = 0; i < size; i++) arr[i] = (int) (Math.pow(rand.nextDouble(), 6) * Integer.MAX_VALUE);
+                break;
+            case "duplicates":
+                // About sqrt(n) distinct values, each repeated about sqrt(n) times
+                int distinct = (int) Math.sqrt(size) + 1;
+                for(int i = 0; i < size; i++) arr[i] = rand.nextInt(distinct) * 7919;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+        return arr;
+    }
+
+    // One measured trial: throughput in sorts/s and allocated bytes per sort
+    static double[] measure(Consumer<int[]> sorter, int[] input) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int[] work = new int[input.length];
+        if(sorter instanceof Prepared) ((Prepared) sorter).prepare(input);
+
+        for(int w = 0; w < warmupIterations; w++) {
+            runFor(sorter, input, work, iterationMillis);
+        }
+
+        double[] throughput = new double[measureIterations];
+        long allocated = 0, sorts = 0;
+        for(int m = 0; m < measureIterations; m++) {
+            long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            long ops = runFor(sorter, input, work, iterationMillis);
+            long elapsed = System.nanoTime() - start;
+            allocated += threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+            sorts += ops;
+            throughput[m] = ops * 1e9 / elapsed;
+        }
+
+        double mean = 0;
+        for(double t : throughput) mean += t;
+        mean /= throughput.length;
+        double var = 0;
+        for(double t : throughput) var += (t - mean) * (t - mean);
+        double err = throughput.length > 1 ? Math.sqrt(var / (throughput.length - 1)) : 0;
+        return new double[]{mean, err, (double) allocated / sorts};
+    }
+
+    private static long runFor(Consumer<int[]> sorter, int[] input, int[] work, long millis) {
+        long deadline = System.nanoTime() + millis * 1_000_000;
+        long ops = 0;
+        do {
+            System.arraycopy(input, 0, work, 0, input.length);
+            sorter.accept(work);
+            ops++;
+        } while(System.nanoTime() < deadline);
+        boolean valid = sorter instanceof Checked ? ((Checked) sorter).check(work) : isSorted(work);
+        if(!valid) throw new IllegalStateException("Output is not sorted");
+        return ops;
+    }
+
+    static boolean isSorted(int[] arr) {
+        for(int i = 1; i < arr.length; i++) {
+            if(arr[i - 1] > arr[i]) return false;
+        }
+        return true;
+    }
+
+    // Runs --forks trials, each in a fresh JVM so JIT profiles from other algorithms don't leak in,
+    // and pools their iterations: mean throughput, standard deviation over all iterations, mean B/op
+    static double[] fork(String algo, String shape, int size, int parallelism)
+            throws IOException, InterruptedException {
+        double[][] trials = new double[forks][];
+        for(int f = 0; f < forks; f++) {
+            trials[f] = forkOnce(algo, shape, size, parallelism);
+            if(trials[f] == null) return null;
+        }
+        int k = measureIterations;
+        double mean = 0, bytes = 0;
+        for(double[] t : trials) {
+            mean += t[0] / forks;
+            bytes += t[2] / forks;
+        }
+        double squares = 0;
+        for(double[] t : trials) squares += (k - 1) * t[1] * t[1] + k * (t[0] - mean) * (t[0] - mean);
+        double err = forks * k > 1 ? Math.sqrt(squares / (forks * k - 1)) : 0;
+        return new double[]{mean, err, bytes};
+    }
+
+    private static double[] forkOnce(String algo, String shape, int size, int parallelism)
+            throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path")));
+        if(parallelism > 0) {
+            command.add("-Djava.util.concurrent.ForkJoinPool.common.parallelism=" + parallelism);
+        }
+        if(SortKernels.vectorModulePresent()) command.add("--add-modules=jdk.incubator.vector");
+        command.addAll(List.of("Benchmark", "--child", algo, shape, String.valueOf(size),
+                "--warmup", String.valueOf(warmupIterations),
+                "--iterations", String.valueOf(measureIterations),
+                "--time", String.valueOf(iterationMillis)));
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = pb.start();
+        double[] result = null;
+        boolean skipped = false;
+        try(BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while((line = br.readLine()) != null) {
+                if(line.startsWith("RESULT ")) {
+                    String[] parts = line.substring(7).split(" ");
+                    result = new double[]{Double.parseDouble(parts[0]), Double.parseDouble(parts[1]),
+                            Double.parseDouble(parts[2])};
+                } else if(line.startsWith("SKIP")) {
+                    skipped = true;
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if(exitCode == 0 && skipped) return null;
+        if(exitCode != 0 || result == null) {
+            throw new IOException("Forked benchmark failed: " + algo + " " + shape + " " + size);
+        }
+        return result;
+    }
+
+    public static void run(Collection<String> algos, String[] shapes, int[] sizes) throws Exception {
+        Map<String, Consumer<int[]>> all = algorithms();
+        // Name typos fail here; an IllegalArgumentException during the run means the algorithm
+        // rejected its input and the cell is skipped
+        for(String algo : algos) {
+            if(!all.containsKey(algo)) throw new IllegalArgumentException("Unknown algorithm: " + algo);
+        }
+        for(String shape : shapes) generate(0, shape, SEED);
+        if(csv) {
+            System.out.println("algorithm,shape,size,threads,ops_per_s,error,bytes_per_op,alloc_mb_per_s");
+        } else {
+            System.out.printf("%-12s %-13s %10s %7s %14s %12s %14s %12s%n",
+                    "Algorithm", "Shape", "Size", "Threads", "Ops/s", "Error", "B/op", "Alloc MB/s");
+        }
+        if(forks == 0 && threads.length > 0) {
+            throw new IllegalArgumentException("--threads needs forked trials, the common pool size is fixed per JVM");
+        }
+        int[] levels = threads.length > 0 ? threads : new int[]{0};
+        for(int size : sizes) {
+            for(String shape : shapes) {
+                for(String algo : algos) {
+                    if(isQuadratic(algo, shape) && size > QUADRATIC_LIMIT) continue;
+                    for(int parallelism : levels) {
+                        String threadCount = parallelism > 0 ? String.valueOf(parallelism) : "default";
+                        double[] r;
+                        try {
+                            r = forks > 0
+                                    ? fork(algo, shape, size, parallelism)
+                                    : measure(all.get(algo), generate(size, shape, SEED));
+                        } catch(IllegalArgumentException e) {
+                            r = null;
+                        } catch(IOException | RuntimeException | StackOverflowError | OutOfMemoryError e) {
+                            // One broken cell should not cost the rest of the suite
+                            if(csv) {
+                                System.out.printf("%s,%s,%d,%s,FAILED,,,%n", algo, shape, size, threadCount);
+                            } else {
+                                System.out.printf("%-12s %-13s %10d %7s %14s   %s%n", algo, shape, size, threadCount,
+                                        "FAILED", e);
+                            }
+                            continue;
+                        }
+                        // The algorithm rejected this input, e.g. counting sort on a full int range
+                        if(r == null) continue;
+                        double allocRate = r[0] * r[2] / (1024 * 1024);
+                        if(csv) {
+                            System.out.printf(Locale.ROOT, "%s,%s,%d,%s,%.3f,%.3f,%.1f,%.3f%n",
+                                    algo, shape, size, threadCount, r[0], r[1], r[2], allocRate);
+                        } else {
+                            System.out.printf("%-12s %-13s %10d %7s %14.2f %12.2f %14.1f %12.2f%n",
+                                    algo, shape, size, threadCount, r[0], r[1], r[2], allocRate);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     public static void testPerformance() {
-        int[] arr = new int[10000];
-        for(int i = 0; i < arr.length; i++) arr[i] = (int)(Math.random() * 10000);
+        try {
+            run(algorithms().keySet(), SHAPES, SIZES);
+        } catch(Exception e) {
+            e.printStackTrace();
+        }
+    }
 
-        long start = System.nanoTime();
-        SortingAlgorithms.quickSort(arr.clone());
-        long end = System.nanoTime();
-        System.out.println("Quick Sort: " + (end - start)/1e6 + " ms");
+    // Usage: java Benchmark [--algos a,b] [--shapes s,t] [--sizes n,m] [--forks f]
+    //                       [--warmup w] [--iterations i] [--time ms] [--threads 1,2,4] [--csv]
+    public static void main(String[] args) throws Exception {
+        Collection<String> algos = algorithms().keySet();
+        String[] shapes = SHAPES;
+        int[] sizes = SIZES;
+        for(int a = 0; a < args.length; a++) {
+            switch(args[a]) {
+                case "--child": {
+                    int size = Integer.parseInt(args[a + 3]);
+                    parseTiming(args, a + 4);
+                    int[] input = generate(size, args[a + 2], SEED);
+                    try {
+                        double[] r = measure(algorithms().get(args[a + 1]), input);
+                        System.out.println("RESULT " + r[0] + " " + r[1] + " " + r[2]);
+                    } catch(IllegalArgumentException e) {
+                        System.out.println("SKIP " + e.getMessage());
+                    }
+                    return;
+                }
+                case "--algos": algos = Arrays.asList(args[++a].split(",")); break;
+                case "--shapes": shapes = args[++a].split(","); break;
+                case "--sizes": sizes = Arrays.stream(args[++a].split(",")).mapToInt(Integer::parseInt).toArray(); break;
+                case "--forks":
+                    forks = Integer.parseInt(args[++a]);
+                    if(forks < 0) throw new IllegalArgumentException("--forks must not be negative: " + forks);
+                    break;
+                case "--csv": csv = true; break;
+                case "--threads": threads = Arrays.stream(args[++a].split(",")).mapToInt(Integer::parseInt).toArray(); break;
+                case "--warmup": case "--iterations": case "--time":
+                    parseTiming(args, a);
+                    a++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[a]);
+            }
+        }
+        run(algos, shapes, sizes);
+    }
 
-        start = System.nanoTime();
-        SortingAlgorithms.mergeSort(arr.clone());
-        end = System.nanoTime();
-        System.out.println("Merge Sort: " + (end - start)/1e6 + " ms");
+    private static void parseTiming(String[] args, int from) {
+        for(int a = from; a + 1 < args.length; a += 2) {
+            switch(args[a]) {
+                case "--warmup": warmupIterations = Integer.parseInt(args[a + 1]); break;
+                case "--iterations": measureIterations = Integer.parseInt(args[a + 1]); break;
+                case "--time": iterationMillis = Long.parseLong(args[a + 1]); break;
+                default: return;
+            }
+        }
     }
-}
\ No newline at end of file
+}
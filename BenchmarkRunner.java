@@ -0,0 +1,503 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+// Capacity-planning sweep over algorithms x input shapes x sizes. Every cell runs as an
+// isolated trial in its own JVM; several trials run at once on a bounded pool, each pinned to
+// its own CPUs with taskset when that is available, and only as many as the free physical
+// memory holds (each counted at its --heap, or an estimate from its size). Per cell it reports
+// the median, p95 and a 95% confidence interval of the median time per sort, and per algorithm
+// and shape the growth exponent fitted on a log-log scale next to the textbook complexity. Writes results.csv,
+// fits.csv, results.json and one scaling-<shape>.svg chart per shape into the output directory.
+//
+//   java -cp bin BenchmarkRunner --algos quick,merge,intro --shapes random,skewed --sizes 1e2..1e7
+//        [--samples 15] [--warmup-ms 500] [--jobs N] [--cpus-per-job 1] [--heap 4g] [--out DIR]
+public class BenchmarkRunner {
+    static final String[] DEFAULT_SHAPES = {"random", "sorted", "reverse", "skewed", "duplicates"};
+    static final String DEFAULT_SIZES = "1e2..1e7";
+
+    private static final long SEED = 42;
+    // Per trial JVM besides the arrays, and bytes per element: input, work copy and up to two
+    // scratch arrays of the sort
+    private static final long JVM_OVERHEAD_MIB = 64;
+    private static final long BYTES_PER_ELEMENT = 4L * Integer.BYTES;
+    private static final String CHILD_STACK = "16m";
+    private static final String[] COLORS = {
+            "#1f77b4", "#d62728", "#2ca02c", "#ff7f0e", "#9467bd", "#8c564b", "#e377c2", "#17becf", "#7f7f7f", "#bcbd22"};
+
+    private static int samples = 15;
+    private static long warmupMillis = 500;
+    private static int cpusPerJob = 1;
+    private static String heap;
+
+    // One algorithm/shape/size trial and its per-sort times
+    static final class Cell {
+        final String algo, shape;
+        final int size;
+        long[] nanos;
+        String failure;
+
+        Cell(String algo, String shape, int size) {
+            this.algo = algo;
+            this.shape = shape;
+            this.size = size;
+        }
+    }
+
+    // Average-case complexity, as given in Visualizer's algorithm descriptions
+    static String textbook(String algo) {
+        switch(algo) {
+            case "bubble": case "selection": case "insertion":
+                return "n^2";
+            case "counting": case "radix": case "radix11": case "americanflag": case "integer":
+            case "long": case "double": case "float": case "short": case "argsort":
+            case "nth": case "partial100": case "topk100": case "percentiles":
+                return "n";
+            default:
+                return "n log n";
+        }
+    }
+
+    static double model(String complexity, double n) {
+        switch(complexity) {
+            case "n^2": return n * n;
+            case "n": return n;
+            default: return n * Math.log(n);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Collection<String> algos = List.of("insertion", "merge", "quick", "intro", "radix", "arrays");
+        String[] shapes = DEFAULT_SHAPES;
+        int[] sizes = parseSizes(DEFAULT_SIZES);
+        int jobs = 0;
+        Path out = Paths.get("bench-results");
+        for(int a = 0; a < args.length; a++) {
+            switch(args[a]) {
+                case "--child":
+                    runChild(args[a + 1], args[a + 2], Integer.parseInt(args[a + 3]),
+                            Integer.parseInt(args[a + 4]), Long.parseLong(args[a + 5]));
+                    return;
+                case "--algos": algos = Arrays.asList(args[++a].split(",")); break;
+                case "--shapes": shapes = args[++a].split(","); break;
+                case "--sizes": sizes = parseSizes(args[++a]); break;
+                case "--samples": samples = Integer.parseInt(args[++a]); break;
+                case "--warmup-ms": warmupMillis = Long.parseLong(args[++a]); break;
+                case "--jobs": jobs = Integer.parseInt(args[++a]); break;
+                case "--cpus-per-job": cpusPerJob = Integer.parseInt(args[++a]); break;
+                case "--heap": heap = args[++a]; heapBytes(heap); break;
+                case "--out": out = Paths.get(args[++a]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[a]);
+            }
+        }
+        if(samples < 1) throw new IllegalArgumentException("Need at least one sample: " + samples);
+        Map<String, Consumer<int[]>> all = Benchmark.algorithms();
+        for(String algo : algos) {
+            if(!all.containsKey(algo)) throw new IllegalArgumentException("Unknown algorithm: " + algo);
+        }
+        for(String shape : shapes) Benchmark.generate(0, shape, SEED);
+
+        List<Cell> cells = new ArrayList<>();
+        for(String shape : shapes) {
+            for(String algo : algos) {
+                for(int size : sizes) {
+                    if(Benchmark.isQuadratic(algo, shape) && size > Benchmark.QUADRATIC_LIMIT) continue;
+                    cells.add(new Cell(algo, shape, size));
+                }
+            }
+        }
+        run(cells, jobs);
+
+        Files.createDirectories(out);
+        writeCsv(cells, out.resolve("results.csv"));
+        List<String[]> fits = fits(cells, algos, shapes);
+        writeFits(fits, out.resolve("fits.csv"));
+        writeJson(cells, fits, out.resolve("results.json"));
+        for(String shape : shapes) writeChart(cells, fits, shape, out.resolve("scaling-" + shape + ".svg"));
+
+        System.out.printf("%-12s %-11s %9s %21s%n", "Algorithm", "Shape", "Fitted", "Textbook");
+        for(String[] fit : fits) {
+            System.out.printf("%-12s %-11s %9s %12s (n^%s)%n", fit[0], fit[1], "n^" + fit[2], fit[3], fit[4]);
+        }
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    // "1e2..1e6" is every power of ten in between, otherwise a comma list such as 1000,5e5
+    static int[] parseSizes(String spec) {
+        if(spec.contains("..")) {
+            String[] ends = spec.split("\\.\\.");
+            long from = (long) Double.parseDouble(ends[0]), to = (long) Double.parseDouble(ends[1]);
+            List<Integer> sizes = new ArrayList<>();
+            for(long n = from; n <= to && n <= Integer.MAX_VALUE - 8; n *= 10) sizes.add((int) n);
+            return sizes.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return Arrays.stream(spec.split(",")).mapToInt(s -> (int) Double.parseDouble(s)).toArray();
+    }
+
+    // Largest cells first so a long trial doesn't start last and hold up the end of the run. A
+    // trial waits for its memory before its CPUs, so large cells run alone instead of together
+    private static void run(List<Cell> cells, int jobs) throws InterruptedException {
+        List<String> cpuSets = cpuSets();
+        int slots = jobs > 0 ? jobs : Math.max(1, cpuSets.isEmpty()
+                ? Runtime.getRuntime().availableProcessors() / cpusPerJob : cpuSets.size());
+        BlockingQueue<String> freeCpus = new LinkedBlockingQueue<>();
+        for(int s = 0; s < slots; s++) freeCpus.add(cpuSets.isEmpty() ? "" : cpuSets.get(s % cpuSets.size()));
+        int budgetMiB = memoryBudgetMiB();
+        Semaphore memory = new Semaphore(budgetMiB, true);
+
+        List<Cell> order = new ArrayList<>(cells);
+        order.sort(Comparator.comparingLong((Cell c) -> Benchmark.isQuadratic(c.algo, c.shape) ? (long) c.size * c.size : c.size).reversed());
+        ExecutorService pool = Executors.newFixedThreadPool(slots);
+        int[] done = {0};
+        for(Cell cell : order) {
+            pool.execute(() -> {
+                // A cell larger than the whole budget still runs, alone
+                int mib = (int) Math.min(budgetMiB, cellMiB(cell));
+                String cpus = null;
+                boolean reserved = false;
+                try {
+                    memory.acquire(mib);
+                    reserved = true;
+                    cpus = freeCpus.take();
+                    cell.nanos = fork(cell, cpus);
+                } catch(IOException e) {
+                    cell.failure = e.getMessage();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cell.failure = "interrupted";
+                } finally {
+                    if(cpus != null) freeCpus.add(cpus);
+                    if(reserved) memory.release(mib);
+                }
+                synchronized(done) {
+                    done[0]++;
+                    System.err.printf("[%d/%d] %s %s %d%s%n", done[0], cells.size(), cell.algo, cell.shape, cell.size,
+                            cell.failure != null ? ": " + cell.failure : cell.nanos == null ? ": skipped" : "");
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    // Free physical memory when the run starts, less this JVM's own heap headroom
+    static int memoryBudgetMiB() {
+        long free = ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getFreeMemorySize();
+        return (int) Math.max(JVM_OVERHEAD_MIB, Math.min(Integer.MAX_VALUE, (free >> 20) - JVM_OVERHEAD_MIB));
+    }
+
+    // What one trial JVM may take: its --heap when given, otherwise its arrays
+    static long cellMiB(Cell cell) {
+        long bytes = heap != null ? heapBytes(heap) : cell.size * BYTES_PER_ELEMENT;
+        return JVM_OVERHEAD_MIB + (bytes >> 20);
+    }
+
+    // -Xmx syntax: a number with an optional k, m or g suffix
+    static long heapBytes(String size) {
+        char unit = Character.toLowerCase(size.charAt(size.length() - 1));
+        int shift = unit == 'k' ? 10 : unit == 'm' ? 20 : unit == 'g' ? 30 : 0;
+        String digits = shift == 0 ? size : size.substring(0, size.length() - 1);
+        try {
+            return Long.parseLong(digits) << shift;
+        } catch(NumberFormatException e) {
+            throw new IllegalArgumentException("Bad heap size: " + size);
+        }
+    }
+
+    // CPU groups for pinning, from this process's allowed CPUs; empty when taskset isn't usable
+    static List<String> cpuSets() {
+        List<String> sets = new ArrayList<>();
+        Path status = Paths.get("/proc/self/status");
+        if(!Files.isReadable(status) || !onPath("taskset")) return sets;
+        List<Integer> cpus = new ArrayList<>();
+        try {
+            for(String line : Files.readAllLines(status)) {
+                if(!line.startsWith("Cpus_allowed_list:")) continue;
+                for(String range : line.substring(line.indexOf(':') + 1).trim().split(",")) {
+                    String[] bounds = range.split("-");
+                    int lo = Integer.parseInt(bounds[0]), hi = Integer.parseInt(bounds[bounds.length - 1]);
+                    for(int c = lo; c <= hi; c++) cpus.add(c);
+                }
+            }
+        } catch(IOException | NumberFormatException e) {
+            return sets;
+        }
+        for(int from = 0; from + cpusPerJob <= cpus.size(); from += cpusPerJob) {
+            StringJoiner set = new StringJoiner(",");
+            for(int c = from; c < from + cpusPerJob; c++) set.add(String.valueOf(cpus.get(c)));
+            sets.add(set.toString());
+        }
+        return sets;
+    }
+
+    private static boolean onPath(String program) {
+        String path = System.getenv("PATH");
+        if(path == null) return false;
+        for(String dir : path.split(File.pathSeparator)) {
+            if(Files.isExecutable(Paths.get(dir, program))) return true;
+        }
+        return false;
+    }
+
+    // Returns the per-sort times, or null when the algorithm rejected the input
+    private static long[] fork(Cell cell, String cpus) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<String> command = new ArrayList<>();
+        if(!cpus.isEmpty()) command.addAll(List.of("taskset", "-c", cpus));
+        command.addAll(List.of(java, "-cp", System.getProperty("java.class.path")));
+        if(heap != null) command.add("-Xmx" + heap);
+        // Lomuto quick on presorted shapes recurses about n deep, up to QUADRATIC_LIMIT
+        command.add("-Xss" + CHILD_STACK);
+        if(SortKernels.vectorModulePresent()) command.add("--add-modules=jdk.incubator.vector");
+        command.addAll(List.of("BenchmarkRunner", "--child", cell.algo, cell.shape, String.valueOf(cell.size),
+                String.valueOf(samples), String.valueOf(warmupMillis)));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<Long> nanos = new ArrayList<>();
+        boolean skipped = false;
+        StringBuilder other = new StringBuilder();
+        try(BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while((line = br.readLine()) != null) {
+                if(line.startsWith("SAMPLE ")) nanos.add(Long.parseLong(line.substring(7)));
+                else if(line.startsWith("SKIP")) skipped = true;
+                else if(!line.startsWith("WARNING")) other.append(line).append('\n');
+            }
+        }
+        int exitCode = process.waitFor();
+        if(exitCode == 0 && skipped) return null;
+        if(exitCode != 0 || nanos.isEmpty()) {
+            String reason = other.toString().trim();
+            throw new IOException("trial failed (exit " + exitCode + ")"
+                    + (reason.isEmpty() ? "" : ": " + reason.lines().reduce((first, last) -> last).orElse("")));
+        }
+        return nanos.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static void runChild(String algo, String shape, int size, int samples, long warmupMillis) {
+        Consumer<int[]> sorter = Benchmark.algorithms().get(algo);
+        int[] input = Benchmark.generate(size, shape, SEED);
+        int[] work = new int[size];
+        if(sorter instanceof Benchmark.Prepared) ((Benchmark.Prepared) sorter).prepare(input);
+        try {
+            long deadline = System.nanoTime() + warmupMillis * 1_000_000;
+            do {
+                System.arraycopy(input, 0, work, 0, size);
+                sorter.accept(work);
+            } while(System.nanoTime() < deadline);
+            for(int s = 0; s < samples; s++) {
+                System.arraycopy(input, 0, work, 0, size);
+                long start = System.nanoTime();
+                sorter.accept(work);
+                System.out.println("SAMPLE " + (System.nanoTime() - start));
+            }
+        } catch(IllegalArgumentException e) {
+            System.out.println("SKIP " + e.getMessage());
+            return;
+        }
+        boolean valid = sorter instanceof Benchmark.Checked ? ((Benchmark.Checked) sorter).check(work) : Benchmark.isSorted(work);
+        if(!valid) throw new IllegalStateException("Output is not sorted");
+    }
+
+    // median, p95, and a distribution-free 95% confidence interval for the median: the order
+    // statistics at ranks n/2 -/+ 1.96 sqrt(n)/2 (normal approximation to the binomial)
+    static double[] summarize(long[] nanos) {
+        long[] s = nanos.clone();
+        Arrays.sort(s);
+        int n = s.length;
+        double median = n % 2 == 1 ? s[n / 2] : (s[n / 2 - 1] + s[n / 2]) / 2.0;
+        double p95 = s[Math.min(n - 1, (int) Math.ceil(0.95 * n) - 1)];
+        double half = 1.96 * Math.sqrt(n) / 2;
+        int lo = Math.max(0, (int) Math.floor(n / 2.0 - half) - 1);
+        int hi = Math.min(n - 1, (int) Math.ceil(1 + n / 2.0 + half) - 1);
+        return new double[]{median, p95, s[lo], s[hi]};
+    }
+
+    // Per algorithm and shape: least-squares slope of log(median) against log(n), and the slope
+    // the textbook complexity has over the same sizes
+    static List<String[]> fits(List<Cell> cells, Collection<String> algos, String[] shapes) {
+        List<String[]> fits = new ArrayList<>();
+        for(String shape : shapes) {
+            for(String algo : algos) {
+                List<double[]> points = new ArrayList<>();
+                for(Cell c : cells) {
+                    if(c.algo.equals(algo) && c.shape.equals(shape) && c.nanos != null) {
+                        points.add(new double[]{c.size, summarize(c.nanos)[0]});
+                    }
+                }
+                if(points.size() < 2) continue;
+                String complexity = textbook(algo);
+                double[] x = new double[points.size()], y = new double[x.length], m = new double[x.length];
+                for(int i = 0; i < x.length; i++) {
+                    x[i] = Math.log(points.get(i)[0]);
+                    y[i] = Math.log(points.get(i)[1]);
+                    m[i] = Math.log(model(complexity, points.get(i)[0]));
+                }
+                fits.add(new String[]{algo, shape, String.format(Locale.ROOT, "%.2f", slope(x, y)), complexity,
+                        String.format(Locale.ROOT, "%.2f", slope(x, m))});
+            }
+        }
+        return fits;
+    }
+
+    private static double slope(double[] x, double[] y) {
+        double mx = 0, my = 0;
+        for(int i = 0; i < x.length; i++) {
+            mx += x[i];
+            my += y[i];
+        }
+        mx /= x.length;
+        my /= y.length;
+        double num = 0, den = 0;
+        for(int i = 0; i < x.length; i++) {
+            num += (x[i] - mx) * (y[i] - my);
+            den += (x[i] - mx) * (x[i] - mx);
+        }
+        return num / den;
+    }
+
+    private static void writeCsv(List<Cell> cells, Path file) throws IOException {
+        try(PrintWriter w = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            w.println("algorithm,shape,size,samples,median_ms,p95_ms,ci_low_ms,ci_high_ms,ns_per_element,status");
+            for(Cell c : cells) {
+                if(c.nanos == null) {
+                    w.printf(Locale.ROOT, "%s,%s,%d,0,,,,,,%s%n", c.algo, c.shape, c.size, c.failure != null ? "failed" : "skipped");
+                    continue;
+                }
+                double[] s = summarize(c.nanos);
+                w.printf(Locale.ROOT, "%s,%s,%d,%d,%.6f,%.6f,%.6f,%.6f,%.3f,ok%n", c.algo, c.shape, c.size, c.nanos.length,
+                        s[0] / 1e6, s[1] / 1e6, s[2] / 1e6, s[3] / 1e6, s[0] / Math.max(1, c.size));
+            }
+        }
+    }
+
+    private static void writeFits(List<String[]> fits, Path file) throws IOException {
+        try(PrintWriter w = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            w.println("algorithm,shape,fitted_exponent,textbook,textbook_exponent");
+            for(String[] fit : fits) w.println(String.join(",", fit));
+        }
+    }
+
+    private static void writeJson(List<Cell> cells, List<String[]> fits, Path file) throws IOException {
+        StringBuilder json = new StringBuilder("{\"results\":[");
+        for(int i = 0; i < cells.size(); i++) {
+            Cell c = cells.get(i);
+            json.append(i > 0 ? ",\n" : "\n").append(String.format(Locale.ROOT,
+                    "{\"algorithm\":\"%s\",\"shape\":\"%s\",\"size\":%d", c.algo, c.shape, c.size));
+            if(c.nanos != null) {
+                double[] s = summarize(c.nanos);
+                json.append(String.format(Locale.ROOT, ",\"medianNanos\":%.0f,\"p95Nanos\":%.0f,\"ciLowNanos\":%.0f,\"ciHighNanos\":%.0f,\"samples\":%s",
+                        s[0], s[1], s[2], s[3], Arrays.toString(c.nanos).replace(" ", "")));
+            } else {
+                json.append(",\"status\":\"").append(c.failure != null ? "failed" : "skipped").append('"');
+            }
+            json.append('}');
+        }
+        json.append("\n],\"fits\":[");
+        for(int i = 0; i < fits.size(); i++) {
+            String[] f = fits.get(i);
+            json.append(i > 0 ? ",\n" : "\n").append(String.format(Locale.ROOT,
+                    "{\"algorithm\":\"%s\",\"shape\":\"%s\",\"fittedExponent\":%s,\"textbook\":\"%s\",\"textbookExponent\":%s}",
+                    f[0], f[1], f[2], f[3], f[4]));
+        }
+        json.append("\n]}\n");
+        Files.write(file, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Log-log chart of median time against size for one shape: a solid line per algorithm with
+    // its confidence intervals, and a dashed textbook curve anchored at its smallest size
+    private static void writeChart(List<Cell> cells, List<String[]> fits, String shape, Path file) throws IOException {
+        int width = 900, height = 600, left = 80, right = 300, top = 40, bottom = 60;
+        int plotW = width - left - right, plotH = height - top - bottom;
+
+        Map<String, List<Cell>> byAlgo = new LinkedHashMap<>();
+        double minN = Double.MAX_VALUE, maxN = 0, minT = Double.MAX_VALUE, maxT = 0;
+        for(Cell c : cells) {
+            if(!c.shape.equals(shape) || c.nanos == null) continue;
+            byAlgo.computeIfAbsent(c.algo, k -> new ArrayList<>()).add(c);
+            double[] s = summarize(c.nanos);
+            minN = Math.min(minN, c.size);
+            maxN = Math.max(maxN, c.size);
+            minT = Math.min(minT, s[2]);
+            maxT = Math.max(maxT, s[3]);
+        }
+        StringBuilder svg = new StringBuilder();
+        svg.append(String.format("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" font-family=\"sans-serif\" font-size=\"12\">%n", width, height));
+        svg.append(String.format("<rect width=\"%d\" height=\"%d\" fill=\"white\"/>%n", width, height));
+        svg.append(String.format("<text x=\"%d\" y=\"24\" font-size=\"16\">Median time per sort, %s input (log-log)</text>%n", left, shape));
+        if(byAlgo.isEmpty()) {
+            Files.write(file, svg.append("</svg>\n").toString().getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        double x0 = Math.floor(Math.log10(minN)), x1 = Math.max(x0 + 1, Math.ceil(Math.log10(maxN)));
+        double y0 = Math.floor(Math.log10(minT)), y1 = Math.max(y0 + 1, Math.ceil(Math.log10(maxT)));
+        double[] scale = {left, plotW / (x1 - x0), top + plotH, plotH / (y1 - y0), x0, y0};
+
+        for(double d = x0; d <= x1; d++) {
+            double x = left + (d - x0) * scale[1];
+            svg.append(String.format(Locale.ROOT, "<line x1=\"%.1f\" y1=\"%d\" x2=\"%.1f\" y2=\"%d\" stroke=\"#ddd\"/>%n", x, top, x, top + plotH));
+            svg.append(String.format(Locale.ROOT, "<text x=\"%.1f\" y=\"%d\" text-anchor=\"middle\">10^%d</text>%n", x, top + plotH + 18, (int) d));
+        }
+        for(double d = y0; d <= y1; d++) {
+            double y = top + plotH - (d - y0) * scale[3];
+            svg.append(String.format(Locale.ROOT, "<line x1=\"%d\" y1=\"%.1f\" x2=\"%d\" y2=\"%.1f\" stroke=\"#ddd\"/>%n", left, y, left + plotW, y));
+            svg.append(String.format(Locale.ROOT, "<text x=\"%d\" y=\"%.1f\" text-anchor=\"end\">%s</text>%n", left - 6, y + 4, timeLabel(Math.pow(10, d))));
+        }
+        svg.append(String.format("<text x=\"%d\" y=\"%d\" text-anchor=\"middle\">elements (n)</text>%n", left + plotW / 2, height - 16));
+        svg.append(String.format("<rect x=\"%d\" y=\"%d\" width=\"%d\" height=\"%d\" fill=\"none\" stroke=\"black\"/>%n", left, top, plotW, plotH));
+
+        int index = 0;
+        for(Map.Entry<String, List<Cell>> e : byAlgo.entrySet()) {
+            String color = COLORS[index % COLORS.length];
+            List<Cell> series = e.getValue();
+            series.sort(Comparator.comparingInt(c -> c.size));
+            StringJoiner line = new StringJoiner(" "), reference = new StringJoiner(" ");
+            String complexity = textbook(e.getKey());
+            double anchor = summarize(series.get(0).nanos)[0] / model(complexity, series.get(0).size);
+            for(Cell c : series) {
+                double[] s = summarize(c.nanos);
+                double x = px(scale, c.size);
+                line.add(String.format(Locale.ROOT, "%.1f,%.1f", x, py(scale, s[0])));
+                reference.add(String.format(Locale.ROOT, "%.1f,%.1f", x, py(scale, anchor * model(complexity, c.size))));
+                svg.append(String.format(Locale.ROOT, "<line x1=\"%.1f\" y1=\"%.1f\" x2=\"%.1f\" y2=\"%.1f\" stroke=\"%s\"/>%n",
+                        x, py(scale, s[2]), x, py(scale, s[3]), color));
+                svg.append(String.format(Locale.ROOT, "<circle cx=\"%.1f\" cy=\"%.1f\" r=\"3\" fill=\"%s\"/>%n", x, py(scale, s[0]), color));
+            }
+            svg.append(String.format("<polyline points=\"%s\" fill=\"none\" stroke=\"%s\" stroke-width=\"2\"/>%n", line, color));
+            svg.append(String.format("<polyline points=\"%s\" fill=\"none\" stroke=\"%s\" stroke-dasharray=\"5,4\" opacity=\"0.6\"/>%n", reference, color));
+
+            String fitted = "?";
+            for(String[] f : fits) {
+                if(f[0].equals(e.getKey()) && f[1].equals(shape)) fitted = "n^" + f[2];
+            }
+            int ly = top + 10 + index * 20;
+            svg.append(String.format("<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" stroke=\"%s\" stroke-width=\"2\"/>%n",
+                    left + plotW + 15, ly, left + plotW + 35, ly, color));
+            svg.append(String.format("<text x=\"%d\" y=\"%d\">%s: fitted %s, textbook %s</text>%n",
+                    left + plotW + 40, ly + 4, e.getKey(), fitted, complexity));
+            index++;
+        }
+        svg.append(String.format("<text x=\"%d\" y=\"%d\" fill=\"#555\">dashed: textbook growth from the smallest size</text>%n",
+                left + plotW + 15, top + 10 + index * 20 + 10));
+        svg.append("</svg>\n");
+        Files.write(file, svg.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static double px(double[] scale, double n) {
+        return scale[0] + (Math.log10(n) - scale[4]) * scale[1];
+    }
+
+    private static double py(double[] scale, double nanos) {
+        return scale[2] - (Math.log10(nanos) - scale[5]) * scale[3];
+    }
+
+    private static String timeLabel(double nanos) {
+        if(nanos >= 1e9) return String.format(Locale.ROOT, "%.0f s", nanos / 1e9);
+        if(nanos >= 1e6) return String.format(Locale.ROOT, "%.0f ms", nanos / 1e6);
+        if(nanos >= 1e3) return String.format(Locale.ROOT, "%.0f µs", nanos / 1e3);
+        return String.format(Locale.ROOT, "%.0f ns", nanos);
+    }
+}
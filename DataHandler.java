@@ -1,4 +1,11 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
 import java.util.*;
 
 public class DataHandler {
@@ -16,4 +23,231 @@ public class DataHandler {
         }
         return list.stream().mapToInt(i -> i).toArray();
     }
-}
\ No newline at end of file
+
+    // Files are mapped one window at a time so inputs larger than 2 GB still work
+    static final long MAP_WINDOW = 1L << 28;
+    static final int IO_BUFFER = 1 << 20;
+
+    public static int[] loadCSVMapped(String filename) throws IOException {
+        return loadCSVMapped(filename, ",");
+    }
+
+    // Parses ASCII integers straight out of the mapped file into a primitive array.
+    // Every character in delimiters separates values, as do line breaks; spaces and tabs
+    // around a value are ignored. Blank lines are skipped, anything else that isn't a
+    // number fails with the byte offset where parsing stopped.
+    public static int[] loadCSVMapped(String filename, String delimiters) throws IOException {
+        IntParser parser = new IntParser(filename, delimiters);
+        try(FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long length = channel.size();
+            for(long windowStart = 0; windowStart < length; windowStart += MAP_WINDOW) {
+                long windowSize = Math.min(MAP_WINDOW, length - windowStart);
+                parser.feed(channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize));
+            }
+        }
+        return parser.finish();
+    }
+
+    // Same format as loadCSVMapped, read from a stream such as stdin that can't be mapped
+    public static int[] readText(ReadableByteChannel in, String name, String delimiters) throws IOException {
+        IntParser parser = new IntParser(name, delimiters);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER);
+        while(in.read(buffer) >= 0) {
+            buffer.flip();
+            parser.feed(buffer);
+            buffer.clear();
+        }
+        return parser.finish();
+    }
+
+    // Little-endian int32 values until end of stream; sizeHint (e.g. the file size / 4) may be 0
+    public static int[] readBinary(ReadableByteChannel in, String name, int sizeHint) throws IOException {
+        return readBinary(in, name, sizeHint, ByteBuffer.allocateDirect(IO_BUFFER));
+    }
+
+    // Reads through the given buffer, e.g. one a server reuses across requests
+    static int[] readBinary(ReadableByteChannel in, String name, int sizeHint, ByteBuffer buffer) throws IOException {
+        int[] values = new int[Math.max(1024, sizeHint)];
+        int size = 0;
+        long bytes = 0;
+        buffer.clear().order(ByteOrder.LITTLE_ENDIAN);
+        int read;
+        while((read = in.read(buffer)) >= 0) {
+            bytes += read;
+            buffer.flip();
+            int count = buffer.remaining() / Integer.BYTES;
+            if(size + count > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + count, values.length + (values.length >> 1)));
+            }
+            buffer.asIntBuffer().get(values, size, count);
+            size += count;
+            buffer.position(count * Integer.BYTES);
+            buffer.compact();
+        }
+        if(buffer.position() != 0) {
+            throw new IOException(name + ": length " + bytes + " is not a multiple of 4 bytes");
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    // Maps a little-endian int32 file without copying it onto the heap; asIntBuffer() on the
+    // result views the values, e.g. for SortingAlgorithms.americanFlagSort(IntBuffer). With
+    // READ_WRITE, changes go straight to the file (force() flushes them). One mapping is limited
+    // to 2 GB; larger files go through ExternalSort.
+    public static MappedByteBuffer mapBinary(Path path, FileChannel.MapMode mode) throws IOException {
+        boolean writable = mode == FileChannel.MapMode.READ_WRITE;
+        try(FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ)) {
+            long bytes = channel.size();
+            if(bytes % Integer.BYTES != 0) throw new IOException(path + ": length " + bytes + " is not a multiple of 4 bytes");
+            if(bytes > Integer.MAX_VALUE) throw new IOException(path + " is larger than one 2 GB mapping; use ExternalSort");
+            MappedByteBuffer mapped = channel.map(mode, 0, bytes);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            return mapped;
+        }
+    }
+
+    // Sorted data in the compact SortedIntFile format: a fraction of the CSV size, and loaded
+    // without parsing or sorting again. SortedIntFile.open gives range queries without a full load.
+    public static void writeSorted(Path path, int[] sorted) throws IOException {
+        SortedIntFile.write(path, sorted);
+    }
+
+    public static int[] loadSorted(Path path) throws IOException {
+        return SortedIntFile.open(path).readAll();
+    }
+
+    public static void writeBinary(WritableByteChannel out, int[] values) throws IOException {
+        writeBinary(out, values, ByteBuffer.allocateDirect(IO_BUFFER));
+    }
+
+    static void writeBinary(WritableByteChannel out, int[] values, ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        for(int written = 0; written < values.length; ) {
+            int count = Math.min(buffer.capacity() / Integer.BYTES, values.length - written);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, written, count);
+            buffer.limit(count * Integer.BYTES);
+            while(buffer.hasRemaining()) out.write(buffer);
+            written += count;
+        }
+    }
+
+    // One value per line, formatted straight into the output buffer
+    public static void writeText(WritableByteChannel out, int[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER);
+        byte[] digits = new byte[11];
+        for(int v : values) {
+            if(buffer.remaining() < 12) flush(out, buffer);
+            if(v < 0) buffer.put((byte) '-');
+            long magnitude = Math.abs((long) v);
+            int d = digits.length;
+            do {
+                digits[--d] = (byte) ('0' + magnitude % 10);
+                magnitude /= 10;
+            } while(magnitude > 0);
+            buffer.put(digits, d, digits.length - d);
+            buffer.put((byte) '\n');
+        }
+        flush(out, buffer);
+    }
+
+    private static void flush(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()) out.write(buffer);
+        buffer.clear();
+    }
+
+    // Byte-at-a-time integer parser behind loadCSVMapped and readText. Input arrives in
+    // buffers of any size, a value may be split across two of them.
+    static final class IntParser {
+        private final String name;
+        private final boolean[] isDelimiter = new boolean[256];
+
+        private int[] values = new int[1024];
+        private int size;
+
+        private long value;
+        private boolean negative;
+        private int digits;             // digits in the current field
+        private boolean signSeen;
+        private boolean afterValue;     // trailing whitespace after digits
+        private boolean lineHasFields;
+        private long offset;
+
+        IntParser(String name, String delimiters) {
+            this.name = name;
+            for(char c : delimiters.toCharArray()) {
+                if(c > 127) throw new IllegalArgumentException("Delimiters must be ASCII: " + c);
+                isDelimiter[c] = true;
+            }
+        }
+
+        void feed(ByteBuffer buffer) throws IOException {
+            for(int p = buffer.position(), end = buffer.limit(); p < end; p++, offset++) {
+                int b = buffer.get(p) & 0xFF;
+                if(b >= '0' && b <= '9') {
+                    if(afterValue) throw malformed(name, offset, b, "missing delimiter between values");
+                    value = value * 10 + (b - '0');
+                    if(value > (negative ? 1L << 31 : Integer.MAX_VALUE)) {
+                        throw malformed(name, offset, b, "value out of int range");
+                    }
+                    digits++;
+                } else if(b == '-' || b == '+') {
+                    if(digits > 0 || signSeen || afterValue) throw malformed(name, offset, b, "unexpected sign");
+                    negative = b == '-';
+                    signSeen = true;
+                } else if(b == '\n' || b == '\r' || (isDelimiter[b] && !isPadding(b))) {
+                    boolean lineEnd = b == '\n' || b == '\r';
+                    if(digits == 0) {
+                        // A line with nothing on it is fine, an empty field between delimiters isn't
+                        if(!lineEnd || lineHasFields || signSeen) throw malformed(name, offset, b, "empty field");
+                    } else {
+                        add();
+                        // Trailing blanks before a line break are padding, not an empty last field
+                        lineHasFields = !lineEnd && b != ' ' && b != '\t';
+                    }
+                    value = 0;
+                    negative = false;
+                    signSeen = false;
+                    afterValue = false;
+                    digits = 0;
+                } else if(b == ' ' || b == '\t') {
+                    if(signSeen && digits == 0) throw malformed(name, offset, b, "sign without digits");
+                    if(digits > 0) afterValue = true;
+                } else {
+                    throw malformed(name, offset, b, "unexpected character");
+                }
+            }
+            buffer.position(buffer.limit());
+        }
+
+        // Spaces and tabs pad fields; as configured delimiters they only end a field that has
+        // started, so runs of them separate values like a single one
+        private boolean isPadding(int b) {
+            return (b == ' ' || b == '\t') && digits == 0 && !signSeen;
+        }
+
+        private void add() {
+            if(size == values.length) {
+                values = Arrays.copyOf(values, values.length + (values.length >> 1));
+            }
+            values[size++] = (int) (negative ? -value : value);
+        }
+
+        int[] finish() throws IOException {
+            if(digits > 0) {
+                add();
+            } else if(lineHasFields || signSeen) {
+                throw malformed(name, offset, -1, "empty field at end of file");
+            }
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+    }
+
+    private static IOException malformed(String filename, long offset, int b, String reason) {
+        String found = b < 0 ? "end of file" : b >= 32 && b < 127 ? "'" + (char) b + "'" : String.format("0x%02X", b);
+        return new IOException(filename + ": malformed input at byte offset " + offset + " (" + found + "): " + reason);
+    }
+}
@@ -0,0 +1,249 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+// Sorts a binary file of little-endian int32 values that may be larger than the heap.
+// The input is cut into runs that fit the memory budget, each run is sorted in memory
+// with SortingAlgorithms.introSort and spilled to a temp file, then the runs are combined
+// with a k-way heap merge (in several passes when there are more runs than the fan-in).
+public class ExternalSort {
+    public interface ProgressListener {
+        // phase is "split" or "merge"; done/total count elements in the current pass
+        void onProgress(String phase, int pass, long done, long total);
+    }
+
+    // File systems we refuse to spill to, the whole point is fast local scratch space
+    private static final Set<String> REMOTE_FILE_STORES =
+            Set.of("nfs", "nfs4", "cifs", "smbfs", "smb2", "smb3", "afs", "sshfs", "fuse.sshfs", "9p");
+
+    private static final int MIN_IO_BUFFER = 64 * 1024;
+
+    private long memoryBudget = 256L * 1024 * 1024;
+    private int runSize = 0;
+    private int fanIn = 64;
+    private Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"));
+    private ProgressListener listener = (phase, pass, done, total) -> { };
+
+    // Bytes of heap the sort may use for run buffers and merge I/O buffers
+    public ExternalSort setMemoryBudget(long bytes) {
+        if(bytes < 4 * MIN_IO_BUFFER) throw new IllegalArgumentException("Memory budget too small: " + bytes);
+        this.memoryBudget = bytes;
+        return this;
+    }
+
+    // Elements per initial run; 0 derives it from the memory budget
+    public ExternalSort setRunSize(int elements) {
+        if(elements < 0) throw new IllegalArgumentException("Run size must not be negative: " + elements);
+        this.runSize = elements;
+        return this;
+    }
+
+    public ExternalSort setFanIn(int fanIn) {
+        if(fanIn < 2) throw new IllegalArgumentException("Fan-in must be at least 2: " + fanIn);
+        this.fanIn = fanIn;
+        return this;
+    }
+
+    public ExternalSort setTempDir(Path tempDir) {
+        this.tempDir = tempDir;
+        return this;
+    }
+
+    public ExternalSort setProgressListener(ProgressListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    // Direct buffer split reads and writes runs through; reserved out of the budget below
+    int splitBufferBytes() {
+        return (int) Math.min(MIN_IO_BUFFER * 16, Math.max(MIN_IO_BUFFER, memoryBudget / 16 / MIN_IO_BUFFER * MIN_IO_BUFFER));
+    }
+
+    int effectiveRunSize() {
+        long fromBudget = (memoryBudget - splitBufferBytes()) / Integer.BYTES;
+        long size = runSize > 0 ? runSize : fromBudget;
+        return (int) Math.max(1, Math.min(size, Integer.MAX_VALUE - 8));
+    }
+
+    public void sort(Path input, Path output) throws IOException {
+        checkLocal(tempDir);
+        long bytes = Files.size(input);
+        if(bytes % Integer.BYTES != 0) {
+            throw new IOException(input + ": length " + bytes + " is not a multiple of 4 bytes");
+        }
+        long total = bytes / Integer.BYTES;
+
+        // A pass's merged files are only swapped into runs once it completes, so both are cleaned up
+        List<Path> runs = new ArrayList<>(), merged = new ArrayList<>();
+        try {
+            split(input, total, runs);
+            int pass = 0;
+            while(runs.size() > fanIn) {
+                pass++;
+                merged = new ArrayList<>();
+                long done = 0;
+                for(int from = 0; from < runs.size(); from += fanIn) {
+                    List<Path> group = runs.subList(from, Math.min(from + fanIn, runs.size()));
+                    Path out = Files.createTempFile(tempDir, "run", ".bin");
+                    merged.add(out);
+                    done = merge(group, out, pass, done, total);
+                    for(Path run : group) Files.deleteIfExists(run);
+                }
+                runs = merged;
+            }
+            merge(runs, output, pass + 1, 0, total);
+        } finally {
+            for(Path run : runs) Files.deleteIfExists(run);
+            for(Path run : merged) Files.deleteIfExists(run);
+        }
+    }
+
+    private void split(Path input, long total, List<Path> runs) throws IOException {
+        int[] chunk = new int[(int) Math.min(effectiveRunSize(), Math.max(total, 1))];
+        ByteBuffer io = ByteBuffer.allocateDirect(splitBufferBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        long done = 0;
+        try(FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            while(done < total) {
+                int n = (int) Math.min(chunk.length, total - done);
+                readInts(in, io, chunk, n);
+                SortingAlgorithms.introSort(chunk, 0, n - 1, 2 * (32 - Integer.numberOfLeadingZeros(n)));
+                Path run = Files.createTempFile(tempDir, "run", ".bin");
+                runs.add(run);
+                try(FileChannel out = FileChannel.open(run, StandardOpenOption.WRITE)) {
+                    writeInts(out, io, chunk, n);
+                }
+                done += n;
+                listener.onProgress("split", 0, done, total);
+            }
+        }
+    }
+
+    private static void readInts(FileChannel in, ByteBuffer io, int[] dst, int n) throws IOException {
+        int filled = 0;
+        while(filled < n) {
+            io.clear();
+            io.limit((int) Math.min(io.capacity(), (long) (n - filled) * Integer.BYTES));
+            while(io.hasRemaining()) {
+                if(in.read(io) < 0) throw new EOFException("Input ended early");
+            }
+            io.flip();
+            int count = io.remaining() / Integer.BYTES;
+            io.asIntBuffer().get(dst, filled, count);
+            filled += count;
+        }
+    }
+
+    private static void writeInts(FileChannel out, ByteBuffer io, int[] src, int n) throws IOException {
+        int written = 0;
+        while(written < n) {
+            io.clear();
+            int count = Math.min(io.capacity() / Integer.BYTES, n - written);
+            io.asIntBuffer().put(src, written, count);
+            io.limit(count * Integer.BYTES);
+            while(io.hasRemaining()) out.write(io);
+            written += count;
+        }
+    }
+
+    // k-way merge of sorted runs through a binary min-heap of run indices
+    private long merge(List<Path> runs, Path output, int pass, long done, long total) throws IOException {
+        int k = runs.size();
+        int bufferBytes = (int) Math.max(MIN_IO_BUFFER,
+                Math.min(Integer.MAX_VALUE / 2, memoryBudget / (k + 1)) & ~(Integer.BYTES - 1));
+        RunReader[] readers = new RunReader[k];
+        int[] heap = new int[k];
+        int heapSize = 0;
+        try(FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for(int r = 0; r < k; r++) {
+                readers[r] = new RunReader(runs.get(r), bufferBytes);
+                if(readers[r].advance()) {
+                    heap[heapSize++] = r;
+                }
+            }
+            for(int i = heapSize / 2 - 1; i >= 0; i--) siftDown(heap, heapSize, i, readers);
+
+            ByteBuffer outBuffer = ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.LITTLE_ENDIAN);
+            long reportEvery = Math.max(1, total / 100);
+            while(heapSize > 0) {
+                RunReader top = readers[heap[0]];
+                if(!outBuffer.hasRemaining()) flush(out, outBuffer);
+                outBuffer.putInt(top.head);
+                if(!top.advance()) {
+                    heap[0] = heap[--heapSize];
+                }
+                siftDown(heap, heapSize, 0, readers);
+                if(++done % reportEvery == 0) listener.onProgress("merge", pass, done, total);
+            }
+            flush(out, outBuffer);
+        } finally {
+            for(RunReader reader : readers) {
+                if(reader != null) reader.close();
+            }
+        }
+        listener.onProgress("merge", pass, done, total);
+        return done;
+    }
+
+    private static void siftDown(int[] heap, int size, int i, RunReader[] readers) {
+        int run = heap[i];
+        int value = readers[run].head;
+        while(true) {
+            int child = 2 * i + 1;
+            if(child >= size) break;
+            if(child + 1 < size && readers[heap[child + 1]].head < readers[heap[child]].head) child++;
+            if(readers[heap[child]].head >= value) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = run;
+    }
+
+    private static void flush(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()) out.write(buffer);
+        buffer.clear();
+    }
+
+    private static void checkLocal(Path dir) throws IOException {
+        String type = Files.getFileStore(dir).type().toLowerCase(Locale.ROOT);
+        if(REMOTE_FILE_STORES.contains(type)) {
+            throw new IOException("Temp directory " + dir + " is on a " + type + " file system, use local disk");
+        }
+    }
+
+    private static class RunReader implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        int head;
+
+        RunReader(Path path, int bufferBytes) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            buffer = ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+        }
+
+        boolean advance() throws IOException {
+            if(buffer.remaining() < Integer.BYTES) {
+                buffer.compact();
+                while(buffer.position() < Integer.BYTES) {
+                    if(channel.read(buffer) < 0) {
+                        buffer.flip();
+                        return false;
+                    }
+                }
+                buffer.flip();
+            }
+            head = buffer.getInt();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+// Sorting a binary int32 file through the heap against sorting it off-heap. Every mode runs in
+// a fresh JVM on a freshly written copy of the same data, so the GC and memory figures belong
+// to that mode alone:
+//   heap            DataHandler.readBinary into an int[], americanFlagSort, writeBinary back
+//   direct          read into a direct ByteBuffer, americanFlagSort(IntBuffer), write back
+//   mapped          DataHandler.mapBinary, americanFlagSort(IntBuffer) in place, force()
+//   mappedparallel  as mapped, with parallelFlagSort
+// Reports wall and sort time, GC count and time, peak heap used, and peak RSS (VmHWM) next to
+// the anonymous RSS left at the end; on Linux mapped file pages count towards RSS but are page
+// cache the kernel can drop, anonymous memory is what the process really holds.
+//
+//   java -cp bin OffHeapBenchmark [--size 100000000] [--modes heap,direct,mapped,mappedparallel]
+//                                 [--heap 2g] [--file PATH]
+public class OffHeapBenchmark {
+    static final String[] MODES = {"heap", "direct", "mapped", "mappedparallel"};
+
+    private static final long SEED = 42;
+
+    public static void main(String[] args) throws Exception {
+        int size = 100_000_000;
+        String[] modes = MODES;
+        String heap = null;
+        Path file = null;
+        for(int a = 0; a < args.length; a++) {
+            switch(args[a]) {
+                case "--child":
+                    runChild(args[a + 1], Paths.get(args[a + 2]));
+                    return;
+                case "--size": size = (int) Double.parseDouble(args[++a]); break;
+                case "--modes": modes = args[++a].split(","); break;
+                case "--heap": heap = args[++a]; break;
+                case "--file": file = Paths.get(args[++a]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[a]);
+            }
+        }
+        for(String mode : modes) {
+            if(!Arrays.asList(MODES).contains(mode)) throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        boolean temporary = file == null;
+        if(temporary) file = Files.createTempFile("offheap", ".bin");
+        try {
+            System.out.printf("%-15s %11s %10s %10s %5s %8s %10s %10s %10s%n", "Mode", "Elements", "Total ms",
+                    "Sort ms", "GCs", "GC ms", "Heap MB", "RSS MB", "Anon MB");
+            for(String mode : modes) {
+                writeInput(file, size);
+                String[] r = fork(mode, file, heap);
+                System.out.printf(Locale.ROOT, "%-15s %11d %10.1f %10.1f %5d %8d %10.1f %10.1f %10.1f%n", mode, size,
+                        Double.parseDouble(r[0]), Double.parseDouble(r[1]), Long.parseLong(r[2]), Long.parseLong(r[3]),
+                        mb(r[4]), mb(r[5]), mb(r[6]));
+            }
+        } finally {
+            if(temporary) Files.deleteIfExists(file);
+        }
+    }
+
+    // Random little-endian int32 values, streamed so the parent never holds the data either
+    private static void writeInput(Path file, int size) throws IOException {
+        Random rand = new Random(SEED);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        try(FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for(int written = 0; written < size; ) {
+                buffer.clear();
+                int count = Math.min(buffer.capacity() / Integer.BYTES, size - written);
+                for(int i = 0; i < count; i++) buffer.putInt(rand.nextInt());
+                buffer.flip();
+                while(buffer.hasRemaining()) out.write(buffer);
+                written += count;
+            }
+        }
+    }
+
+    private static String[] fork(String mode, Path file, String heap) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path")));
+        if(heap != null) command.add("-Xmx" + heap);
+        command.addAll(List.of("OffHeapBenchmark", "--child", mode, file.toString()));
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = pb.start();
+        String[] result = null;
+        try(BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while((line = br.readLine()) != null) {
+                if(line.startsWith("RESULT ")) result = line.substring(7).split(" ");
+            }
+        }
+        int exitCode = process.waitFor();
+        if(exitCode != 0 || result == null) throw new IOException("Forked benchmark failed: " + mode);
+        return result;
+    }
+
+    // Prints RESULT totalMs sortMs gcCount gcMs peakHeapBytes peakRssBytes anonRssBytes
+    private static void runChild(String mode, Path file) throws IOException {
+        long start = System.nanoTime(), sortNanos;
+        switch(mode) {
+            case "heap": {
+                int[] values;
+                try(FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                    values = DataHandler.readBinary(in, file.toString(), (int) (in.size() / Integer.BYTES));
+                }
+                long sortStart = System.nanoTime();
+                SortingAlgorithms.americanFlagSort(values);
+                sortNanos = System.nanoTime() - sortStart;
+                try(FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    DataHandler.writeBinary(out, values);
+                }
+                break;
+            }
+            case "direct": {
+                try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    ByteBuffer buffer = ByteBuffer.allocateDirect((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+                    while(buffer.hasRemaining() && channel.read(buffer) >= 0) { }
+                    buffer.flip();
+                    long sortStart = System.nanoTime();
+                    SortingAlgorithms.americanFlagSort(buffer.asIntBuffer());
+                    sortNanos = System.nanoTime() - sortStart;
+                    channel.position(0);
+                    while(buffer.hasRemaining()) channel.write(buffer);
+                }
+                break;
+            }
+            case "mapped":
+            case "mappedparallel": {
+                MappedByteBuffer mapped = DataHandler.mapBinary(file, FileChannel.MapMode.READ_WRITE);
+                long sortStart = System.nanoTime();
+                if(mode.equals("mapped")) SortingAlgorithms.americanFlagSort(mapped.asIntBuffer());
+                else SortingAlgorithms.parallelFlagSort(mapped.asIntBuffer());
+                sortNanos = System.nanoTime() - sortStart;
+                mapped.force();
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        long total = System.nanoTime() - start;
+        // Read before the check below, whose mapping would add the whole file to every mode's RSS
+        long peakRss = procStatus("VmHWM"), anonRss = procStatus("RssAnon");
+
+        long gcCount = 0, gcMillis = 0, peakHeap = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if(pool.getType() == MemoryType.HEAP) peakHeap += pool.getPeakUsage().getUsed();
+        }
+        if(!isSorted(DataHandler.mapBinary(file, FileChannel.MapMode.READ_ONLY).asIntBuffer())) {
+            throw new IllegalStateException(mode + ": output is not sorted");
+        }
+        System.out.println("RESULT " + total / 1e6 + " " + sortNanos / 1e6 + " " + gcCount + " " + gcMillis + " "
+                + peakHeap + " " + peakRss + " " + anonRss);
+    }
+
+    private static boolean isSorted(IntBuffer buf) {
+        for(int i = 1; i < buf.limit(); i++) {
+            if(buf.get(i - 1) > buf.get(i)) return false;
+        }
+        return true;
+    }
+
+    // A kB field of /proc/self/status in bytes, -1 where there is none (not Linux)
+    private static long procStatus(String field) {
+        try {
+            for(String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if(line.startsWith(field + ":")) {
+                    return Long.parseLong(line.substring(field.length() + 1).trim().split("\\s+")[0]) * 1024;
+                }
+            }
+        } catch(IOException | RuntimeException e) {
+            // fall through
+        }
+        return -1;
+    }
+
+    private static double mb(String bytes) {
+        long b = Long.parseLong(bytes);
+        return b < 0 ? Double.NaN : b / (1024.0 * 1024);
+    }
+}
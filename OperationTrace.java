@@ -0,0 +1,105 @@
+import java.util.Arrays;
+
+// Compact log of the array operations a sort performs. The algorithms in SortingAlgorithms
+// record into it when given a trace, and Visualizer replays it. Each operation takes three
+// ints (opcode and two operands) in one growable array, so a trace of millions of operations
+// costs no per-operation objects.
+public final class OperationTrace implements SortProbe {
+    public static final int COMPARE = 0; // compare(i, j)
+    public static final int SWAP = 1;    // swap(i, j)
+    public static final int WRITE = 2;   // write(index, value)
+    public static final int READ = 3;    // read(index, -)
+    public static final int RANGE = 4;   // range(low, high): the algorithm is now working on [low, high]
+
+    private int[] ops = new int[3 * 1024];
+    private int size;
+    private final int maxOperations;
+
+    public OperationTrace() {
+        this((Integer.MAX_VALUE - 8) / 3);
+    }
+
+    // Recording more than maxOperations throws IllegalStateException instead of growing further
+    public OperationTrace(int maxOperations) {
+        this.maxOperations = maxOperations;
+    }
+
+    @Override
+    public void compare(int i, int j) {
+        add(COMPARE, i, j);
+    }
+
+    @Override
+    public void swap(int i, int j) {
+        add(SWAP, i, j);
+    }
+
+    @Override
+    public void write(int index, int value) {
+        add(WRITE, index, value);
+    }
+
+    @Override
+    public void read(int index) {
+        add(READ, index, -1);
+    }
+
+    @Override
+    public void range(int low, int high) {
+        add(RANGE, low, high);
+    }
+
+    private void add(int opcode, int a, int b) {
+        if(size + 3 > ops.length) {
+            if(length() >= maxOperations || ops.length >= Integer.MAX_VALUE - 8 - ops.length / 2) {
+                throw new IllegalStateException("Trace is full at " + length() + " operations");
+            }
+            ops = Arrays.copyOf(ops, (int) Math.min(ops.length + ops.length / 2, 3L * maxOperations));
+        }
+        ops[size] = opcode;
+        ops[size + 1] = a;
+        ops[size + 2] = b;
+        size += 3;
+    }
+
+    // Number of recorded operations
+    public int length() {
+        return size / 3;
+    }
+
+    public int opcode(int op) {
+        return ops[op * 3];
+    }
+
+    public int first(int op) {
+        return ops[op * 3 + 1];
+    }
+
+    public int second(int op) {
+        return ops[op * 3 + 2];
+    }
+
+    // Replays the mutating operations in [from, to) onto arr
+    public void apply(int[] arr, int from, int to) {
+        for(int k = from * 3, end = to * 3; k < end; k += 3) {
+            switch(ops[k]) {
+                case SWAP: {
+                    int temp = arr[ops[k + 1]];
+                    arr[ops[k + 1]] = arr[ops[k + 2]];
+                    arr[ops[k + 2]] = temp;
+                    break;
+                }
+                case WRITE:
+                    arr[ops[k + 1]] = ops[k + 2];
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    // Approximate heap footprint of the recorded operations
+    public long sizeInBytes() {
+        return (long) ops.length * Integer.BYTES;
+    }
+}
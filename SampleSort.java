@@ -0,0 +1,279 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Sorts a binary file of little-endian int32 values across several local worker JVMs, so no
+// single heap has to hold more than about 1/p of the data:
+//   sample   read random positions of the input, sort them and take p-1 evenly spaced splitters
+//   shuffle  stream the input once and route every value into one of p bucket files by binary
+//            search over the splitters
+//   sort     start one worker JVM per bucket; each loads its bucket, sorts it with a sequential
+//            SortingAlgorithms sort (SortCli's names) and writes it back over the bucket file
+//   gather   the buckets cover increasing value ranges, so the output is their concatenation
+// The coordinator itself only holds the sample and one I/O buffer per bucket. Bucket files go to
+// --temp-dir, e.g. /dev/shm to keep the shuffle in memory. Many copies of one value all land in
+// the same bucket, so a heavily skewed input gives an unbalanced split (reported as skew).
+//
+//   java -cp bin SampleSort --in data.bin --out sorted.bin [--workers 4] [--worker-heap 2g]
+//                           [--algo intro] [--temp-dir DIR] [--seed 42]
+public class SampleSort {
+    static final int SAMPLES_PER_BUCKET = 256;
+
+    private static final int IO_BUFFER = 1 << 20;
+    private static final int BUCKET_BUFFER = 1 << 16;
+
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private String workerHeap;
+    private String algorithm = "intro";
+    private Path tempDir = Paths.get(System.getProperty("java.io.tmpdir"));
+    private long seed = 42;
+
+    // Stage times in nanoseconds, and per bucket: values, worker read/sort/write nanos
+    long sampleNanos, shuffleNanos, sortNanos, gatherNanos;
+    long[] bucketSizes;
+    long[][] workerNanos;
+
+    public SampleSort setWorkers(int workers) {
+        if(workers < 1) throw new IllegalArgumentException("Need at least one worker: " + workers);
+        this.workers = workers;
+        return this;
+    }
+
+    // -Xmx for every worker JVM; null leaves the JVM default
+    public SampleSort setWorkerHeap(String workerHeap) {
+        this.workerHeap = workerHeap;
+        return this;
+    }
+
+    // auto is allowed: a worker asks for parallelism 1, so AutoSorter picks a sequential sort
+    public SampleSort setAlgorithm(String algorithm) {
+        if(SortCli.isParallel(algorithm) && !algorithm.equals("auto")) throw new IllegalArgumentException("Workers sort sequentially: " + algorithm);
+        SortCli.algorithm(algorithm, 1);
+        this.algorithm = algorithm;
+        return this;
+    }
+
+    public SampleSort setTempDir(Path tempDir) {
+        this.tempDir = tempDir;
+        return this;
+    }
+
+    public SampleSort setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public void sort(Path input, Path output) throws IOException, InterruptedException {
+        long bytes = Files.size(input);
+        if(bytes % Integer.BYTES != 0) throw new IOException(input + ": length " + bytes + " is not a multiple of 4 bytes");
+        long total = bytes / Integer.BYTES;
+
+        long start = System.nanoTime();
+        int[] splitters = splitters(input, total);
+        long sampled = System.nanoTime();
+        sampleNanos = sampled - start;
+
+        int buckets = splitters.length + 1;
+        List<Path> files = new ArrayList<>();
+        try {
+            for(int b = 0; b < buckets; b++) files.add(Files.createTempFile(tempDir, "bucket", ".bin"));
+            bucketSizes = shuffle(input, splitters, files);
+            long shuffled = System.nanoTime();
+            shuffleNanos = shuffled - sampled;
+
+            workerNanos = sortBuckets(files);
+            long sorted = System.nanoTime();
+            sortNanos = sorted - shuffled;
+
+            gather(files, output);
+            gatherNanos = System.nanoTime() - sorted;
+        } finally {
+            for(Path file : files) Files.deleteIfExists(file);
+        }
+    }
+
+    // p-1 evenly spaced values of a sorted random sample; fewer when the input is small
+    private int[] splitters(Path input, long total) throws IOException {
+        int p = (int) Math.max(1, Math.min(workers, total));
+        int sampleSize = (int) Math.min(total, (long) p * SAMPLES_PER_BUCKET);
+        if(p == 1 || sampleSize == 0) return new int[0];
+        int[] sample = new int[sampleSize];
+        Random rand = new Random(seed);
+        ByteBuffer value = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try(FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            for(int s = 0; s < sampleSize; s++) {
+                long position = (long) (rand.nextDouble() * total) * Integer.BYTES;
+                value.clear();
+                while(value.hasRemaining()) {
+                    if(in.read(value, position + value.position()) < 0) throw new EOFException("Input ended early");
+                }
+                sample[s] = value.getInt(0);
+            }
+        }
+        SortingAlgorithms.introSort(sample);
+        int[] splitters = new int[p - 1];
+        for(int i = 1; i < p; i++) splitters[i - 1] = sample[(int) ((long) i * sampleSize / p)];
+        return splitters;
+    }
+
+    // Values <= splitters[0] go to bucket 0, values in (splitters[b-1], splitters[b]] to bucket b
+    private static long[] shuffle(Path input, int[] splitters, List<Path> files) throws IOException {
+        int buckets = files.size();
+        long[] sizes = new long[buckets];
+        FileChannel[] outs = new FileChannel[buckets];
+        ByteBuffer[] pending = new ByteBuffer[buckets];
+        try(FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            for(int b = 0; b < buckets; b++) {
+                outs[b] = FileChannel.open(files.get(b), StandardOpenOption.WRITE);
+                pending[b] = ByteBuffer.allocateDirect(BUCKET_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            while(in.read(buffer) >= 0) {
+                buffer.flip();
+                while(buffer.remaining() >= Integer.BYTES) {
+                    int v = buffer.getInt();
+                    int b = bucket(splitters, v);
+                    ByteBuffer out = pending[b];
+                    out.putInt(v);
+                    if(!out.hasRemaining()) flush(outs[b], out);
+                    sizes[b]++;
+                }
+                buffer.compact();
+            }
+            for(int b = 0; b < buckets; b++) flush(outs[b], pending[b]);
+        } finally {
+            for(FileChannel out : outs) {
+                if(out != null) out.close();
+            }
+        }
+        return sizes;
+    }
+
+    private static int bucket(int[] splitters, int v) {
+        int lo = 0, hi = splitters.length;
+        while(lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if(splitters[mid] < v) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static void flush(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()) out.write(buffer);
+        buffer.clear();
+    }
+
+    // All workers run at once; returns each one's read, sort and write times
+    private long[][] sortBuckets(List<Path> files) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<Process> processes = new ArrayList<>();
+        try {
+            for(Path file : files) {
+                List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path")));
+                if(workerHeap != null) command.add("-Xmx" + workerHeap);
+                command.addAll(List.of("SampleSort", "--worker", file.toString(), algorithm));
+                processes.add(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+            }
+            long[][] nanos = new long[files.size()][];
+            for(int w = 0; w < processes.size(); w++) {
+                Process process = processes.get(w);
+                String result = null;
+                try(BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                    String line;
+                    while((line = br.readLine()) != null) {
+                        if(line.startsWith("DONE ")) result = line.substring(5);
+                    }
+                }
+                if(process.waitFor() != 0 || result == null) throw new IOException("Worker " + w + " failed on " + files.get(w));
+                nanos[w] = Arrays.stream(result.split(" ")).mapToLong(Long::parseLong).toArray();
+            }
+            return nanos;
+        } finally {
+            for(Process process : processes) process.destroyForcibly();
+        }
+    }
+
+    private static void gather(List<Path> files, Path output) throws IOException {
+        try(FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for(Path file : files) {
+                try(FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    for(long done = 0; done < size; ) done += in.transferTo(done, size - done, out);
+                }
+            }
+        }
+    }
+
+    // Worker side: sorts one bucket file in its own heap and prints DONE readNanos sortNanos writeNanos
+    private static void runWorker(Path bucket, String algorithm) throws IOException {
+        Consumer<int[]> sort = SortCli.algorithm(algorithm, 1);
+        long start = System.nanoTime();
+        int[] values;
+        try(FileChannel in = FileChannel.open(bucket, StandardOpenOption.READ)) {
+            long elements = in.size() / Integer.BYTES;
+            if(elements > Integer.MAX_VALUE - 8) {
+                throw new IOException(bucket + " has " + elements + " values, more than one worker can hold; use more workers");
+            }
+            values = DataHandler.readBinary(in, bucket.toString(), (int) elements);
+        }
+        long read = System.nanoTime();
+        sort.accept(values);
+        long sorted = System.nanoTime();
+        try(FileChannel out = FileChannel.open(bucket, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataHandler.writeBinary(out, values);
+        }
+        long written = System.nanoTime();
+        System.out.println("DONE " + (read - start) + " " + (sorted - read) + " " + (written - sorted));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if(args.length == 3 && args[0].equals("--worker")) {
+            runWorker(Paths.get(args[1]), args[2]);
+            return;
+        }
+        SampleSort sorter = new SampleSort();
+        Path in = null, out = null;
+        for(int a = 0; a < args.length; a++) {
+            switch(args[a]) {
+                case "--in": in = Paths.get(args[++a]); break;
+                case "--out": out = Paths.get(args[++a]); break;
+                case "--workers": sorter.setWorkers(Integer.parseInt(args[++a])); break;
+                case "--worker-heap": sorter.setWorkerHeap(args[++a]); break;
+                case "--algo": sorter.setAlgorithm(args[++a]); break;
+                case "--temp-dir": sorter.setTempDir(Paths.get(args[++a])); break;
+                case "--seed": sorter.setSeed(Long.parseLong(args[++a])); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[a]);
+            }
+        }
+        if(in == null || out == null) throw new IllegalArgumentException("Usage: SampleSort --in FILE --out FILE [--workers N]");
+        sorter.sort(in, out);
+        sorter.printTimings(System.out);
+    }
+
+    void printTimings(PrintStream out) {
+        long total = 0, max = 0;
+        for(long size : bucketSizes) {
+            total += size;
+            max = Math.max(max, size);
+        }
+        double mean = (double) total / bucketSizes.length;
+        out.printf("values: %d, workers: %d, largest bucket: %d (skew %.2f)%n",
+                total, bucketSizes.length, max, mean == 0 ? 1 : max / mean);
+        out.printf("sample:  %9.1f ms%n", sampleNanos / 1e6);
+        out.printf("shuffle: %9.1f ms%n", shuffleNanos / 1e6);
+        out.printf("sort:    %9.1f ms%n", sortNanos / 1e6);
+        for(int w = 0; w < workerNanos.length; w++) {
+            out.printf("  worker %d: %d values, read %.1f ms, sort %.1f ms, write %.1f ms%n", w, bucketSizes[w],
+                    workerNanos[w][0] / 1e6, workerNanos[w][1] / 1e6, workerNanos[w][2] / 1e6);
+        }
+        out.printf("gather:  %9.1f ms%n", gatherNanos / 1e6);
+        out.printf("total:   %9.1f ms%n", (sampleNanos + shuffleNanos + sortNanos + gatherNanos) / 1e6);
+    }
+}
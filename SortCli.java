@@ -0,0 +1,247 @@
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+// Headless batch sorting: reads integers from a file or stdin, sorts them and writes them to
+// a file or stdout. Only touches SortingAlgorithms, DataHandler, AutoSorter and SortMetrics, so
+// no AWT classes are ever loaded and it runs on servers without a display.
+//
+//   java -cp bin SortCli [--in FILE|-] [--out FILE|-] [--format text|binary|sorted]
+//                        [--out-format text|binary|sorted] [--delimiters ",;"] [--algo NAME]
+//                        [--parallelism N] [--stats] [--metrics FILE]
+//   java -cp bin SortCli --in FILE --format binary --in-place [--parallelism N] [--stats]
+//
+// Text input is numbers separated by the delimiters (default ",") and line breaks; text output
+// is one number per line. Binary is little-endian int32 in both directions. Sorted is the
+// compact block format of SortedIntFile and needs a file on both sides. --in-place sorts a
+// binary file where it is through a memory mapping (American flag sort, forked over N threads
+// when N > 1), so its values never enter the heap. --algo auto lets AutoSorter pick the sort
+// from the input (the parallel sort only when N > 1 or the common pool has several threads);
+// with --stats it prints the choice, the reason and the analysis time. --metrics FILE runs the
+// same sort with a probe through SortMetrics and writes its JSON dump to FILE; only the
+// INSTRUMENTED names have a probe.
+public class SortCli {
+    private static final String USAGE = "Usage: SortCli [--in FILE|-] [--out FILE|-] [--format text|binary|sorted] "
+            + "[--out-format text|binary|sorted] [--delimiters CHARS] [--algo NAME] [--parallelism N] [--stats] [--metrics FILE]\n"
+            + "       SortCli --in FILE --format binary --in-place [--parallelism N] [--stats]";
+
+    // SortCli name -> the SortingAlgorithms.sort name of the same implementation with a probe
+    static final Map<String, String> INSTRUMENTED = Map.of("intro", "intro", "merge", "bufferedmerge",
+            "adaptive", "adaptive", "insertion", "insertion", "counting", "counting", "radix", "radix",
+            "americanflag", "americanflag");
+
+    // In Visualizer, Benchmark and BenchmarkRunner "quick" is the Lomuto quickSort, which recurses
+    // n deep on sorted input; the headless tools refuse the name rather than mean something else
+    static final String QUICK_IS_LOMUTO = "quick is the visualizer's Lomuto quicksort, quadratic on sorted input; "
+            + "use intro (quicksort with a depth limit)";
+
+    static Consumer<int[]> algorithm(String name, int requested) {
+        if(!isParallel(name) && requested > 1) {
+            throw new IllegalArgumentException(name + " is sequential, use pmerge, pquick, parallelsort or auto with --parallelism");
+        }
+        int parallelism = requested > 0 ? requested : ForkJoinPool.getCommonPoolParallelism();
+        switch(name) {
+            case "auto": return arr -> AutoSorter.sort(arr, parallelism);
+            case "intro": return SortingAlgorithms::introSort;
+            case "merge": return SortingAlgorithms::bufferedMergeSort;
+            case "adaptive": return SortingAlgorithms::adaptiveMergeSort;
+            case "quick": throw new IllegalArgumentException(QUICK_IS_LOMUTO);
+            case "counting": return SortingAlgorithms::countingSort;
+            case "radix": return SortingAlgorithms::radixSort;
+            case "americanflag": return SortingAlgorithms::americanFlagSort;
+            case "integer": return SortingAlgorithms::integerSort;
+            case "insertion": return SortingAlgorithms::insertionSort;
+            case "pmerge": return arr -> SortingAlgorithms.parallelMergeSort(arr, SortingAlgorithms.PARALLEL_CUTOFF, parallelism);
+            case "pquick": return arr -> SortingAlgorithms.parallelQuickSort(arr, SortingAlgorithms.PARALLEL_CUTOFF, parallelism);
+            case "parallelsort": return arr -> {
+                // Arrays.parallelSort forks into whichever pool it is called from
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    pool.submit(() -> Arrays.parallelSort(arr)).join();
+                } finally {
+                    pool.shutdown();
+                }
+            };
+            default: throw new IllegalArgumentException("Unknown algorithm: " + name);
+        }
+    }
+
+    static boolean isParallel(String name) {
+        return name.equals("pmerge") || name.equals("pquick") || name.equals("parallelsort") || name.equals("auto");
+    }
+
+    public static void main(String[] args) {
+        try {
+            System.exit(run(args));
+        } catch(IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch(IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    static int run(String[] args) throws IOException {
+        String in = "-", out = "-";
+        String format = "text", outFormat = null, delimiters = ",", algo = "intro", metrics = null;
+        int parallelism = 0;        // 0: common pool size for the parallel sorts
+        boolean stats = false, inPlace = false;
+        for(int a = 0; a < args.length; a++) {
+            switch(args[a]) {
+                case "--in": in = value(args, ++a); break;
+                case "--out": out = value(args, ++a); break;
+                case "--format": format = format(value(args, ++a)); break;
+                case "--out-format": outFormat = format(value(args, ++a)); break;
+                case "--delimiters": delimiters = value(args, ++a); break;
+                case "--algo": algo = value(args, ++a); break;
+                case "--parallelism": parallelism = Integer.parseInt(value(args, ++a)); break;
+                case "--stats": stats = true; break;
+                case "--metrics": metrics = value(args, ++a); break;
+                case "--in-place": inPlace = true; break;
+                case "--help": System.out.println(USAGE); return 0;
+                default: throw new IllegalArgumentException("Unknown option: " + args[a]);
+            }
+        }
+        if(parallelism < 0) throw new IllegalArgumentException("Parallelism must not be negative: " + parallelism);
+        if(inPlace) {
+            if(in.equals("-") || !format.equals("binary") || !out.equals("-") || outFormat != null || metrics != null) {
+                throw new IllegalArgumentException("--in-place needs --in FILE with --format binary and no --out");
+            }
+            return sortInPlace(Paths.get(in), parallelism, stats);
+        }
+        if(outFormat == null) outFormat = format;
+        if((format.equals("sorted") && in.equals("-")) || (outFormat.equals("sorted") && out.equals("-"))) {
+            throw new IllegalArgumentException("The sorted format needs a file, not stdin/stdout");
+        }
+        Consumer<int[]> sort = algorithm(algo, parallelism);
+        if(!isParallel(algo)) parallelism = 1;
+        else if(parallelism == 0) parallelism = ForkJoinPool.getCommonPoolParallelism();
+        AutoSorter.Decision[] decision = {null};
+        int autoParallelism = parallelism;
+        if(algo.equals("auto")) sort = arr -> decision[0] = AutoSorter.sort(arr, autoParallelism);
+        if(metrics != null) {
+            String name = INSTRUMENTED.get(algo);
+            if(name == null) {
+                throw new IllegalArgumentException("--metrics needs an instrumented sort, one of "
+                        + new TreeSet<>(INSTRUMENTED.keySet()) + ": " + algo);
+            }
+            sort = arr -> SortMetrics.sort(name, arr);
+        }
+
+        long start = System.nanoTime();
+        int[] values = read(in, format, delimiters);
+        long read = System.nanoTime();
+        sort.accept(values);
+        long sorted = System.nanoTime();
+        write(out, outFormat, values);
+        long written = System.nanoTime();
+        if(metrics != null) SortMetrics.get().dump(Paths.get(metrics));
+
+        if(stats) {
+            double mb = (double) values.length * Integer.BYTES / (1 << 20);
+            System.err.printf("elements: %d (%.1f MB as int32), algorithm: %s, parallelism: %d%n",
+                    values.length, mb, algo, parallelism);
+            if(decision[0] != null) System.err.println("auto: " + decision[0]);
+            System.err.printf("read:  %9.1f ms%n", (read - start) / 1e6);
+            System.err.printf("sort:  %9.1f ms  %,.0f elements/s  %.1f MB/s%n",
+                    (sorted - read) / 1e6, values.length / seconds(read, sorted), mb / seconds(read, sorted));
+            System.err.printf("write: %9.1f ms%n", (written - sorted) / 1e6);
+            System.err.printf("total: %9.1f ms  %,.0f elements/s  %.1f MB/s%n",
+                    (written - start) / 1e6, values.length / seconds(start, written), mb / seconds(start, written));
+        }
+        return 0;
+    }
+
+    private static int sortInPlace(Path file, int parallelism, boolean stats) throws IOException {
+        long start = System.nanoTime();
+        MappedByteBuffer mapped = DataHandler.mapBinary(file, FileChannel.MapMode.READ_WRITE);
+        long mappedAt = System.nanoTime();
+        if(parallelism > 1) {
+            SortingAlgorithms.parallelFlagSort(mapped.asIntBuffer(), SortingAlgorithms.PARALLEL_CUTOFF, parallelism);
+        } else {
+            SortingAlgorithms.americanFlagSort(mapped.asIntBuffer());
+        }
+        long sorted = System.nanoTime();
+        mapped.force();
+        long written = System.nanoTime();
+
+        if(stats) {
+            long elements = mapped.capacity() / Integer.BYTES;
+            double mb = (double) mapped.capacity() / (1 << 20);
+            System.err.printf("elements: %d (%.1f MB as int32), algorithm: americanflag in place, parallelism: %d%n",
+                    elements, mb, Math.max(1, parallelism));
+            System.err.printf("map:   %9.1f ms%n", (mappedAt - start) / 1e6);
+            System.err.printf("sort:  %9.1f ms  %,.0f elements/s  %.1f MB/s%n",
+                    (sorted - mappedAt) / 1e6, elements / seconds(mappedAt, sorted), mb / seconds(mappedAt, sorted));
+            System.err.printf("force: %9.1f ms%n", (written - sorted) / 1e6);
+        }
+        return 0;
+    }
+
+    private static int[] read(String in, String format, String delimiters) throws IOException {
+        if(in.equals("-")) {
+            try(ReadableByteChannel channel = Channels.newChannel(new FileInputStream(FileDescriptor.in))) {
+                return format.equals("binary")
+                        ? DataHandler.readBinary(channel, "stdin", 0)
+                        : DataHandler.readText(channel, "stdin", delimiters);
+            }
+        }
+        if(format.equals("text")) return DataHandler.loadCSVMapped(in, delimiters);
+        if(format.equals("sorted")) return DataHandler.loadSorted(Paths.get(in));
+        Path path = Paths.get(in);
+        long elements = Files.size(path) / Integer.BYTES;
+        if(elements > Integer.MAX_VALUE - 8) {
+            throw new IOException(in + " has " + elements + " values, more than fit in one array; use ExternalSort");
+        }
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return DataHandler.readBinary(channel, in, (int) elements);
+        }
+    }
+
+    private static void write(String out, String format, int[] values) throws IOException {
+        if(format.equals("sorted")) {
+            DataHandler.writeSorted(Paths.get(out), values);
+            return;
+        }
+        try(WritableByteChannel channel = out.equals("-")
+                ? Channels.newChannel(new FileOutputStream(FileDescriptor.out))
+                : FileChannel.open(Paths.get(out), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            if(format.equals("binary")) DataHandler.writeBinary(channel, values);
+            else DataHandler.writeText(channel, values);
+        }
+    }
+
+    private static String value(String[] args, int a) {
+        if(a >= args.length) throw new IllegalArgumentException("Missing value for " + args[a - 1]);
+        return args[a];
+    }
+
+    private static String format(String format) {
+        if(!format.equals("text") && !format.equals("binary") && !format.equals("sorted")) {
+            throw new IllegalArgumentException("Format must be text, binary or sorted: " + format);
+        }
+        return format;
+    }
+
+    private static double seconds(long from, long to) {
+        return Math.max(1, to - from) / 1e9;
+    }
+}
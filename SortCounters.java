@@ -0,0 +1,89 @@
+// SortProbe that only counts: comparisons, swaps, array writes, reads, scratch bytes allocated,
+// the deepest recursion reached and (when run through measure) the wall time. Not thread safe,
+// use one per sort.
+public final class SortCounters implements SortProbe {
+    private long comparisons, swaps, writes, reads, allocatedBytes, nanos;
+    private int depth, maxDepth;
+
+    @Override
+    public void compare(int i, int j) {
+        comparisons++;
+    }
+
+    @Override
+    public void swap(int i, int j) {
+        swaps++;
+    }
+
+    @Override
+    public void write(int index, int value) {
+        writes++;
+    }
+
+    @Override
+    public void read(int index) {
+        reads++;
+    }
+
+    @Override
+    public void range(int low, int high) {
+    }
+
+    @Override
+    public void allocated(long bytes) {
+        allocatedBytes += bytes;
+    }
+
+    @Override
+    public void enter() {
+        if(++depth > maxDepth) maxDepth = depth;
+    }
+
+    @Override
+    public void exit() {
+        depth--;
+    }
+
+    // Runs one of the instrumented sorts (see SortingAlgorithms.sort) on arr and returns its counters
+    public static SortCounters measure(String algorithm, int[] arr) {
+        SortCounters counters = new SortCounters();
+        long start = System.nanoTime();
+        SortingAlgorithms.sort(algorithm, arr, counters);
+        counters.nanos = System.nanoTime() - start;
+        return counters;
+    }
+
+    public long comparisons() {
+        return comparisons;
+    }
+
+    public long swaps() {
+        return swaps;
+    }
+
+    public long writes() {
+        return writes;
+    }
+
+    public long reads() {
+        return reads;
+    }
+
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    public long nanos() {
+        return nanos;
+    }
+
+    public String toJson() {
+        return String.format("{\"comparisons\":%d,\"swaps\":%d,\"writes\":%d,\"reads\":%d,"
+                        + "\"allocatedBytes\":%d,\"maxDepth\":%d,\"nanos\":%d}",
+                comparisons, swaps, writes, reads, allocatedBytes, maxDepth, nanos);
+    }
+}
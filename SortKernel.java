@@ -0,0 +1,14 @@
+// Small-block sort and merge steps that SortingAlgorithms.kernelIntroSort/kernelMergeSort build
+// on. SortKernels picks the SIMD implementation when it is available and a scalar one otherwise.
+public interface SortKernel {
+    // Largest range sortBlock accepts
+    int BLOCK = 32;
+
+    // Sorts arr[low..high], at most BLOCK elements
+    void sortBlock(int[] arr, int low, int high);
+
+    // Merges the sorted runs src[low, mid) and src[mid, high) into dst[low, high)
+    void merge(int[] src, int low, int mid, int high, int[] dst);
+
+    String name();
+}
@@ -0,0 +1,69 @@
+// Chooses the SortKernel. The Vector API kernel (vector/VectorSortKernel.java) is built
+// separately because jdk.incubator.vector has to be added explicitly at compile and run time:
+//
+//   javac --add-modules jdk.incubator.vector -cp bin -d bin vector/*.java
+//   java --add-modules jdk.incubator.vector -cp bin ...
+//
+// It is loaded by name, so without the module or the class everything falls back to the
+// scalar kernel. -Dsort.kernel=scalar forces the fallback for comparisons.
+public final class SortKernels {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final SortKernel SCALAR = new Scalar();
+    private static volatile SortKernel best;
+
+    private SortKernels() {
+    }
+
+    public static SortKernel get() {
+        SortKernel kernel = best;
+        if(kernel == null) {
+            kernel = load();
+            best = kernel;
+        }
+        return kernel;
+    }
+
+    public static SortKernel scalar() {
+        return SCALAR;
+    }
+
+    static boolean vectorModulePresent() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+
+    private static SortKernel load() {
+        if("scalar".equals(System.getProperty("sort.kernel")) || !vectorModulePresent()) return SCALAR;
+        try {
+            return (SortKernel) Class.forName("VectorSortKernel").getDeclaredConstructor().newInstance();
+        } catch(ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+            // Not built, or no usable vector shape on this CPU
+            return SCALAR;
+        }
+    }
+
+    // Insertion sort for blocks and a plain two-way merge
+    private static final class Scalar implements SortKernel {
+        @Override
+        public void sortBlock(int[] arr, int low, int high) {
+            SortingAlgorithms.insertionSort(arr, low, high);
+        }
+
+        @Override
+        public void merge(int[] src, int low, int mid, int high, int[] dst) {
+            scalarMerge(src, low, mid, mid, high, dst, low);
+        }
+
+        @Override
+        public String name() {
+            return "scalar";
+        }
+    }
+
+    // Merges src[a, aEnd) and src[b, bEnd) into dst from out; shared with the vector kernel's tails
+    public static int scalarMerge(int[] src, int a, int aEnd, int b, int bEnd, int[] dst, int out) {
+        while(a < aEnd && b < bEnd) dst[out++] = src[a] <= src[b] ? src[a++] : src[b++];
+        while(a < aEnd) dst[out++] = src[a++];
+        while(b < bEnd) dst[out++] = src[b++];
+        return out;
+    }
+}
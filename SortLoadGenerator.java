@@ -0,0 +1,122 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load generator for SortServer: a number of closed-loop clients, each posting its own random
+// payload to /sort again as soon as the previous answer is in. Requests turned away with 503
+// are counted and retried after a short pause. Prints throughput and latency percentiles of the
+// successful requests after the warmup period, then the server's own /metrics.
+//
+//   java -cp bin SortLoadGenerator [--url http://127.0.0.1:8080] [--clients 16] [--size 100000]
+//                                  [--algo intro] [--duration 10] [--warmup 2]
+public class SortLoadGenerator {
+    private static final long REJECT_BACKOFF_MILLIS = 50;
+
+    public static void main(String[] args) throws Exception {
+        String url = "http://127.0.0.1:8080", algo = "intro";
+        int clients = 16, size = 100_000;
+        double durationSeconds = 10, warmupSeconds = 2;
+        for(int a = 0; a < args.length; a++) {
+            switch(args[a]) {
+                case "--url": url = args[++a]; break;
+                case "--clients": clients = Integer.parseInt(args[++a]); break;
+                case "--size": size = (int) Double.parseDouble(args[++a]); break;
+                case "--algo": algo = args[++a]; break;
+                case "--duration": durationSeconds = Double.parseDouble(args[++a]); break;
+                case "--warmup": warmupSeconds = Double.parseDouble(args[++a]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[a]);
+            }
+        }
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI sortUri = URI.create(url + "/sort?algo=" + algo);
+        long warmupEnd = System.nanoTime() + (long) (warmupSeconds * 1e9);
+        long end = warmupEnd + (long) (durationSeconds * 1e9);
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong ok = new AtomicLong(), rejected = new AtomicLong(), errors = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<?>> running = new ArrayList<>();
+        for(int c = 0; c < clients; c++) {
+            byte[] payload = payload(size, c);
+            running.add(pool.submit(() -> {
+                boolean checked = false;
+                while(System.nanoTime() < end) {
+                    long start = System.nanoTime();
+                    HttpResponse<byte[]> response;
+                    try {
+                        response = http.send(HttpRequest.newBuilder(sortUri)
+                                .header("Content-Type", "application/octet-stream")
+                                .POST(HttpRequest.BodyPublishers.ofByteArray(payload)).build(),
+                                HttpResponse.BodyHandlers.ofByteArray());
+                    } catch(IOException e) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    long nanos = System.nanoTime() - start;
+                    boolean measured = start >= warmupEnd;
+                    if(response.statusCode() == 200) {
+                        if(!checked) {
+                            checkSorted(response.body(), payload.length);
+                            checked = true;
+                        }
+                        if(measured) {
+                            ok.incrementAndGet();
+                            latencies.add(nanos);
+                        }
+                    } else if(response.statusCode() == 503) {
+                        if(measured) rejected.incrementAndGet();
+                        Thread.sleep(REJECT_BACKOFF_MILLIS);
+                    } else {
+                        errors.incrementAndGet();
+                        System.err.println(response.statusCode() + ": " + new String(response.body()).trim());
+                    }
+                }
+                return null;
+            }));
+        }
+        for(Future<?> f : running) f.get();
+        pool.shutdown();
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        SortingAlgorithms.radixSort(sorted);
+        double seconds = durationSeconds;
+        System.out.printf("clients: %d, values per request: %d (%.2f MB), algorithm: %s%n",
+                clients, size, size * 4.0 / (1 << 20), algo);
+        System.out.printf("ok: %d, rejected (503): %d, errors: %d%n", ok.get(), rejected.get(), errors.get());
+        System.out.printf("throughput: %.1f requests/s, %.1f MB/s sorted%n",
+                ok.get() / seconds, ok.get() * (size * 4.0 / (1 << 20)) / seconds);
+        System.out.printf("latency ms: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n", percentile(sorted, 50),
+                percentile(sorted, 90), percentile(sorted, 99), sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+        HttpResponse<String> metrics = http.send(HttpRequest.newBuilder(URI.create(url + "/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        System.out.println("server: " + metrics.body());
+    }
+
+    private static byte[] payload(int size, long seed) {
+        Random rand = new Random(seed);
+        ByteBuffer buffer = ByteBuffer.allocate(size * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for(int i = 0; i < size; i++) buffer.putInt(rand.nextInt());
+        return buffer.array();
+    }
+
+    private static void checkSorted(byte[] body, int expectedBytes) {
+        if(body.length != expectedBytes) throw new IllegalStateException("Got " + body.length + " bytes back, sent " + expectedBytes);
+        ByteBuffer values = ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+        for(int i = Integer.BYTES; i < body.length; i += Integer.BYTES) {
+            if(values.getInt(i - Integer.BYTES) > values.getInt(i)) throw new IllegalStateException("Response is not sorted");
+        }
+    }
+
+    // Nearest-rank percentile in milliseconds
+    private static double percentile(long[] sorted, double p) {
+        if(sorted.length == 0) return 0;
+        return sorted[Math.max(0, (int) Math.ceil(p / 100 * sorted.length) - 1)] / 1e6;
+    }
+}
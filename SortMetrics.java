@@ -0,0 +1,170 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Process-wide cost of the sorts run through it, aggregated per algorithm and input shape so
+// cost can be correlated with the kind of data being sorted. Published over JMX as
+// SortingVisualizer:type=SortMetrics on first use; SortCli --metrics fills and dumps it. Only the
+// sorts that take a SortProbe (SortingAlgorithms.sort) can be counted: integerSort and the
+// parallel sorts have no probe and never show up here.
+// Sorts that are not run through here carry no probe and cost nothing extra.
+public final class SortMetrics implements SortMetricsMBean {
+    public static final String OBJECT_NAME = "SortingVisualizer:type=SortMetrics";
+
+    private static SortMetrics instance;
+
+    // "algorithm/shape" -> totals
+    private final Map<String, Totals> totals = new TreeMap<>();
+
+    private static final class Totals {
+        long sorts, elements, comparisons, swaps, writes, reads, allocatedBytes, nanos;
+        int maxDepth;
+
+        void add(int n, SortCounters c) {
+            sorts++;
+            elements += n;
+            comparisons += c.comparisons();
+            swaps += c.swaps();
+            writes += c.writes();
+            reads += c.reads();
+            allocatedBytes += c.allocatedBytes();
+            nanos += c.nanos();
+            maxDepth = Math.max(maxDepth, c.maxDepth());
+        }
+    }
+
+    private SortMetrics() {
+    }
+
+    public static synchronized SortMetrics get() {
+        if(instance == null) {
+            instance = new SortMetrics();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(OBJECT_NAME));
+            } catch(JMException e) {
+                throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+            }
+        }
+        return instance;
+    }
+
+    // Sorts arr with the named instrumented sort and records its counters under the input's shape
+    public static SortCounters sort(String algorithm, int[] arr) {
+        String shape = shape(arr);
+        SortCounters counters = SortCounters.measure(algorithm, arr);
+        get().record(algorithm, shape, arr.length, counters);
+        return counters;
+    }
+
+    public synchronized void record(String algorithm, String shape, int elements, SortCounters counters) {
+        totals.computeIfAbsent(algorithm + "/" + shape, k -> new Totals()).add(elements, counters);
+    }
+
+    // Rough shape of the input from its descents (a[i] > a[i+1]) and ascents, one linear pass
+    static String shape(int[] arr) {
+        int n = arr.length;
+        long descents = 0, ascents = 0;
+        for(int i = 1; i < n; i++) {
+            if(arr[i - 1] > arr[i]) descents++;
+            else if(arr[i - 1] < arr[i]) ascents++;
+        }
+        if(descents == 0) return "sorted";
+        if(ascents == 0) return "reverse";
+        if(descents <= (n >> 5)) return "mostlysorted";
+        if(ascents <= (n >> 5)) return "mostlyreverse";
+        return "random";
+    }
+
+    private synchronized Totals sum() {
+        Totals all = new Totals();
+        for(Totals t : totals.values()) {
+            all.sorts += t.sorts;
+            all.elements += t.elements;
+            all.comparisons += t.comparisons;
+            all.swaps += t.swaps;
+            all.writes += t.writes;
+            all.reads += t.reads;
+            all.allocatedBytes += t.allocatedBytes;
+            all.nanos += t.nanos;
+            all.maxDepth = Math.max(all.maxDepth, t.maxDepth);
+        }
+        return all;
+    }
+
+    @Override
+    public long getSorts() {
+        return sum().sorts;
+    }
+
+    @Override
+    public long getElements() {
+        return sum().elements;
+    }
+
+    @Override
+    public long getComparisons() {
+        return sum().comparisons;
+    }
+
+    @Override
+    public long getSwaps() {
+        return sum().swaps;
+    }
+
+    @Override
+    public long getWrites() {
+        return sum().writes;
+    }
+
+    @Override
+    public long getReads() {
+        return sum().reads;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return sum().allocatedBytes;
+    }
+
+    @Override
+    public int getMaxRecursionDepth() {
+        return sum().maxDepth;
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return sum().nanos;
+    }
+
+    // One JSON object per algorithm/shape pair
+    @Override
+    public synchronized String dump() {
+        StringBuilder json = new StringBuilder("[");
+        for(Map.Entry<String, Totals> e : totals.entrySet()) {
+            String[] key = e.getKey().split("/", 2);
+            Totals t = e.getValue();
+            if(json.length() > 1) json.append(",\n");
+            json.append(String.format("{\"algorithm\":\"%s\",\"shape\":\"%s\",\"sorts\":%d,\"elements\":%d,"
+                            + "\"comparisons\":%d,\"swaps\":%d,\"writes\":%d,\"reads\":%d,\"allocatedBytes\":%d,"
+                            + "\"maxDepth\":%d,\"nanos\":%d}",
+                    key[0], key[1], t.sorts, t.elements, t.comparisons, t.swaps, t.writes, t.reads,
+                    t.allocatedBytes, t.maxDepth, t.nanos));
+        }
+        return json.append("]\n").toString();
+    }
+
+    public void dump(Path file) throws IOException {
+        Files.write(file, dump().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public synchronized void reset() {
+        totals.clear();
+    }
+}
@@ -0,0 +1,25 @@
+// JMX view of SortMetrics: totals over every recorded sort, plus a JSON dump broken down
+// by algorithm and input shape.
+public interface SortMetricsMBean {
+    long getSorts();
+
+    long getElements();
+
+    long getComparisons();
+
+    long getSwaps();
+
+    long getWrites();
+
+    long getReads();
+
+    long getAllocatedBytes();
+
+    int getMaxRecursionDepth();
+
+    long getTotalNanos();
+
+    String dump();
+
+    void reset();
+}
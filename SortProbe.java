@@ -0,0 +1,27 @@
+// Receives the operations an instrumented sort in SortingAlgorithms performs. OperationTrace
+// records them for replay and SortCounters just counts them. Sorts are passed null when nothing
+// should be recorded; every call site is guarded by a null check that the JIT folds away, so a
+// disabled probe costs nothing measurable (see the quick/quickraw rows of Benchmark).
+public interface SortProbe {
+    void compare(int i, int j);
+
+    void swap(int i, int j);
+
+    void write(int index, int value);
+
+    void read(int index);
+
+    // The sort is now working on [low, high]
+    void range(int low, int high);
+
+    // Scratch memory the sort allocated, in bytes
+    default void allocated(long bytes) {
+    }
+
+    // Entering and leaving a recursive call
+    default void enter() {
+    }
+
+    default void exit() {
+    }
+}
@@ -0,0 +1,351 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Local sort service on the JDK HttpServer, bound to the loopback address.
+//
+//   POST /sort[?algo=NAME]   body: little-endian int32 values, Content-Length required;
+//                            response: the same values sorted, streamed back; NAME is one of
+//                            ALGORITHMS, and a sort that fails answers 500 (400 if it rejected
+//                            the input, e.g. counting sort on a wide range)
+//   GET  /metrics            JSON: job counts, reserved in-flight bytes, queue depth, latency
+//                            percentiles
+//
+// Requests are handled one thread each: a virtual thread when the JVM has them (Java 21+), a
+// bounded pool of platform threads otherwise. The sorting itself runs on a fork/join pool of
+// platform threads sized to the CPUs; jobs of at least --parallel-threshold values (with the
+// default intro algorithm) are split into fork/join subtasks in that same pool, so large and
+// small jobs share the cores by work stealing instead of oversubscribing them.
+//
+// Admission control: every job reserves its footprint from a byte budget before its body is
+// read: the payload, the scratch its algorithm allocates (see footprint) and the I/O buffer it
+// reads and writes through, taken from a pool that holds at most one per admitted job. So the
+// budget bounds the memory held by in-flight jobs. A job waits up to --admission-wait-ms for
+// budget to free up and is then turned away with 503 and Retry-After; a job whose footprint is
+// larger than the whole budget gets 413.
+//
+//   java -cp bin SortServer [--port 8080] [--budget-mb 256] [--parallelism N]
+//                           [--admission-wait-ms 2000] [--parallel-threshold 262144]
+public class SortServer {
+    // Recent samples of one latency, for percentiles over a sliding window
+    static final class LatencyWindow {
+        private final long[] samples = new long[8192];
+        private long count;
+
+        synchronized void record(long nanos) {
+            samples[(int) (count++ % samples.length)] = nanos;
+        }
+
+        synchronized long[] snapshot() {
+            return Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+        }
+
+        String toJson() {
+            long[] s = snapshot();
+            SortingAlgorithms.radixSort(s);
+            return String.format(Locale.ROOT, "{\"samples\":%d,\"p50\":%.3f,\"p99\":%.3f,\"max\":%.3f}",
+                    s.length, percentile(s, 50), percentile(s, 99), s.length == 0 ? 0 : s[s.length - 1] / 1e6);
+        }
+
+        // Nearest-rank percentile in milliseconds
+        private static double percentile(long[] sorted, double p) {
+            if(sorted.length == 0) return 0;
+            int rank = (int) Math.ceil(p / 100 * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+
+    private static final int BUDGET_UNIT = 1024;    // the budget semaphore counts KiB
+    // O(n log n) or linear sorts only: a quadratic one on a large payload would hold a pool
+    // thread for hours. auto gets parallelism 1 below, so it never forks out of the pool
+    static final Set<String> ALGORITHMS = new LinkedHashSet<>(List.of("intro", "merge", "adaptive",
+            "radix", "americanflag", "integer", "counting", "auto"));
+
+    private final HttpServer server;
+    private final ExecutorService requestThreads;
+    private final ForkJoinPool sortPool;
+    private final Semaphore budget;
+    // Direct buffers of DataHandler.IO_BUFFER bytes, reused across requests
+    private final Queue<ByteBuffer> ioBuffers = new ConcurrentLinkedQueue<>();
+    private final long budgetBytes;
+    private final long admissionWaitMillis;
+    private final int parallelThreshold;
+    private final boolean virtualThreads;
+
+    private final AtomicLong jobs = new AtomicLong(), rejected = new AtomicLong(), tooLarge = new AtomicLong(),
+            failed = new AtomicLong(), bytesSorted = new AtomicLong(), inFlightBytes = new AtomicLong();
+    private final AtomicInteger waitingForAdmission = new AtomicInteger(), queuedJobs = new AtomicInteger(),
+            runningJobs = new AtomicInteger(), maxQueueDepth = new AtomicInteger();
+    private final LatencyWindow admissionLatency = new LatencyWindow(), queueLatency = new LatencyWindow(),
+            sortLatency = new LatencyWindow(), totalLatency = new LatencyWindow();
+
+    public SortServer(int port, long budgetBytes, int parallelism, long admissionWaitMillis, int parallelThreshold)
+            throws IOException {
+        if(budgetBytes < BUDGET_UNIT) throw new IllegalArgumentException("Budget too small: " + budgetBytes);
+        int units = (int) Math.min(Integer.MAX_VALUE, budgetBytes / BUDGET_UNIT);
+        this.budgetBytes = (long) units * BUDGET_UNIT;
+        this.budget = new Semaphore(units, true);
+        this.admissionWaitMillis = admissionWaitMillis;
+        this.parallelThreshold = parallelThreshold;
+        this.sortPool = new ForkJoinPool(parallelism);
+        ExecutorService virtual = virtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.requestThreads = virtual != null ? virtual : Executors.newFixedThreadPool(256);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(requestThreads);
+        server.createContext("/sort", this::handleSort);
+        server.createContext("/metrics", this::handleMetrics);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() where it exists; looked up reflectively so the
+    // server still builds and runs on Java 17
+    static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch(ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        requestThreads.shutdown();
+        sortPool.shutdown();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleSort(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try(exchange) {
+            if(!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, 405, "POST little-endian int32 values to /sort");
+                return;
+            }
+            String lengthHeader = exchange.getRequestHeaders().getFirst("Content-Length");
+            if(lengthHeader == null) {
+                respond(exchange, 411, "Content-Length is required for admission control");
+                return;
+            }
+            long length = parseLength(lengthHeader);
+            if(length < 0 || length % Integer.BYTES != 0) {
+                respond(exchange, 400, "Content-Length " + lengthHeader + " is not a multiple of 4 bytes");
+                return;
+            }
+            String algo = query(exchange.getRequestURI()).getOrDefault("algo", "intro");
+            if(!ALGORITHMS.contains(algo)) {
+                respond(exchange, 400, algo.equals("quick") ? SortCli.QUICK_IS_LOMUTO
+                        : "Unsupported algorithm " + algo + ", use one of " + ALGORITHMS);
+                return;
+            }
+            long footprint = footprint(algo, length);
+            if(footprint > budgetBytes || length / Integer.BYTES > Integer.MAX_VALUE - 8) {
+                tooLarge.incrementAndGet();
+                respond(exchange, 413, "Payload of " + length + " bytes needs " + footprint + " bytes with " + algo
+                        + ", over the budget of " + budgetBytes);
+                return;
+            }
+            Consumer<int[]> sort = SortCli.algorithm(algo, 1);
+
+            int permits = (int) Math.max(1, (footprint + BUDGET_UNIT - 1) / BUDGET_UNIT);
+            waitingForAdmission.incrementAndGet();
+            boolean admitted;
+            try {
+                admitted = budget.tryAcquire(permits, admissionWaitMillis, TimeUnit.MILLISECONDS);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                admitted = false;
+            } finally {
+                waitingForAdmission.decrementAndGet();
+            }
+            long admittedAt = System.nanoTime();
+            admissionLatency.record(admittedAt - start);
+            if(!admitted) {
+                rejected.incrementAndGet();
+                // Read and drop the body so the client gets the 503 instead of a reset connection
+                exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, "Over the in-flight byte budget, retry later");
+                return;
+            }
+            inFlightBytes.addAndGet(footprint);
+            ByteBuffer io = ioBuffers.poll();
+            if(io == null) io = ByteBuffer.allocateDirect(DataHandler.IO_BUFFER);
+            try {
+                runJob(exchange, sort, algo, (int) (length / Integer.BYTES), io, start, admittedAt);
+            } finally {
+                ioBuffers.add(io);
+                inFlightBytes.addAndGet(-footprint);
+                budget.release(permits);
+            }
+        } catch(IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            throw e;
+        }
+    }
+
+    // Bytes a job of the given payload holds while admitted: the values, the I/O buffer and the
+    // sort's scratch. merge, radix and adaptive allocate up to another n ints; integer sort up to
+    // 2n counters; counting sort counters over the value range, which is only known once the body
+    // is read, so it is charged its largest; auto may pick any of these
+    static long footprint(String algo, long payload) {
+        long counting = SortingAlgorithms.COUNTING_SORT_MAX_RANGE * (long) Integer.BYTES;
+        long scratch;
+        switch(algo) {
+            case "merge": case "radix": case "adaptive": scratch = payload; break;
+            case "integer": scratch = 2 * payload; break;
+            case "counting": scratch = counting; break;
+            case "auto":
+                double rangeFactor = AutoSorter.thresholds().countingRangeFactor;
+                scratch = Math.max(payload, (long) Math.min(counting, Math.ceil(rangeFactor) * payload));
+                break;
+            default: scratch = 0;
+        }
+        return payload + scratch + DataHandler.IO_BUFFER;
+    }
+
+    private void runJob(HttpExchange exchange, Consumer<int[]> sort, String algo, int n, ByteBuffer io, long start,
+                        long admittedAt) throws IOException {
+        int[] values = DataHandler.readBinary(Channels.newChannel(exchange.getRequestBody()), "request", n, io);
+        if(values.length != n) {
+            respond(exchange, 400, "Body had " + values.length + " values, Content-Length announced " + n);
+            return;
+        }
+        long[] startedAt = new long[1];
+        long queuedAt = System.nanoTime();
+        maxQueueDepth.accumulateAndGet(queuedJobs.incrementAndGet(), Math::max);
+        ForkJoinTask<?> job = sortPool.submit(() -> {
+            queuedJobs.decrementAndGet();
+            runningJobs.incrementAndGet();
+            startedAt[0] = System.nanoTime();
+            try {
+                if(n >= parallelThreshold && algo.equals("intro")) SortingAlgorithms.parallelQuickSort(values, sortPool);
+                else sort.accept(values);
+            } finally {
+                runningJobs.decrementAndGet();
+            }
+        });
+        try {
+            job.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.cancel(false);
+            respond(exchange, 503, "Interrupted");
+            return;
+        } catch(ExecutionException e) {
+            // e.g. counting sort on too wide a range; answer instead of dropping the connection
+            Throwable cause = e.getCause();
+            failed.incrementAndGet();
+            respond(exchange, cause instanceof IllegalArgumentException ? 400 : 500, "Sort failed: " + cause.getMessage());
+            return;
+        }
+        long sortedAt = System.nanoTime();
+        queueLatency.record(startedAt[0] - queuedAt);
+        sortLatency.record(sortedAt - startedAt[0]);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        exchange.getResponseHeaders().set("X-Queue-Millis", String.format(Locale.ROOT, "%.3f", (startedAt[0] - queuedAt) / 1e6));
+        exchange.getResponseHeaders().set("X-Sort-Millis", String.format(Locale.ROOT, "%.3f", (sortedAt - startedAt[0]) / 1e6));
+        exchange.sendResponseHeaders(200, n == 0 ? -1 : (long) n * Integer.BYTES);
+        try(OutputStream body = exchange.getResponseBody()) {
+            DataHandler.writeBinary(Channels.newChannel(body), values, io);
+        }
+        jobs.incrementAndGet();
+        bytesSorted.addAndGet((long) n * Integer.BYTES);
+        totalLatency.record(System.nanoTime() - start);
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try(exchange) {
+            byte[] json = metricsJson().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, json.length);
+            exchange.getResponseBody().write(json);
+        }
+    }
+
+    String metricsJson() {
+        return "{\"jobs\":" + jobs.get()
+                + ",\"rejected\":" + rejected.get()
+                + ",\"tooLarge\":" + tooLarge.get()
+                + ",\"failed\":" + failed.get()
+                + ",\"bytesSorted\":" + bytesSorted.get()
+                + ",\"inFlightBytes\":" + inFlightBytes.get()
+                + ",\"budgetBytes\":" + budgetBytes
+                + ",\"waitingForAdmission\":" + waitingForAdmission.get()
+                + ",\"queuedJobs\":" + queuedJobs.get()
+                + ",\"runningJobs\":" + runningJobs.get()
+                + ",\"maxQueueDepth\":" + maxQueueDepth.get()
+                + ",\"poolParallelism\":" + sortPool.getParallelism()
+                + ",\"virtualThreads\":" + virtualThreads
+                + ",\"latencyMillis\":{\"admission\":" + admissionLatency.toJson()
+                + ",\"queue\":" + queueLatency.toJson()
+                + ",\"sort\":" + sortLatency.toJson()
+                + ",\"total\":" + totalLatency.toJson() + "}}";
+    }
+
+    private static void respond(HttpExchange exchange, int code, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(code, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static long parseLength(String header) {
+        try {
+            return Long.parseLong(header.trim());
+        } catch(NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String query = uri.getRawQuery();
+        if(query == null) return params;
+        for(String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if(eq > 0) params.put(pair.substring(0, eq), pair.substring(eq + 1));
+        }
+        return params;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8080, parallelism = Runtime.getRuntime().availableProcessors();
+        int parallelThreshold = 1 << 18;
+        long budgetMb = 256, admissionWaitMillis = 2000;
+        for(int a = 0; a < args.length; a++) {
+            switch(args[a]) {
+                case "--port": port = Integer.parseInt(args[++a]); break;
+                case "--budget-mb": budgetMb = Long.parseLong(args[++a]); break;
+                case "--parallelism": parallelism = Integer.parseInt(args[++a]); break;
+                case "--admission-wait-ms": admissionWaitMillis = Long.parseLong(args[++a]); break;
+                case "--parallel-threshold": parallelThreshold = Integer.parseInt(args[++a]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[a]);
+            }
+        }
+        SortServer server = new SortServer(port, budgetMb << 20, parallelism, admissionWaitMillis, parallelThreshold);
+        server.start();
+        System.out.printf("Sorting on http://127.0.0.1:%d/sort (budget %d MB, %d sort threads, %s request threads)%n",
+                server.port(), budgetMb, parallelism, server.virtualThreads ? "virtual" : "platform");
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    }
+}
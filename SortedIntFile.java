@@ -0,0 +1,274 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Compact file format for sorted int data, written and read through DataHandler.writeSorted /
+// loadSorted. Values are stored in blocks of BLOCK_VALUES; each block keeps its first value and
+// the gaps to the following ones, either as varints or bit-packed at the width of the largest
+// gap, whichever is smaller. A sparse index of block min/max, file offset and rank sits in the
+// footer, so a reader maps the file, binary-searches the index and decodes only the blocks a
+// query touches. All numbers are little-endian.
+//
+//   header   magic "SRTI", version, value count (long)
+//   block    min, max, value count, payload bytes (ints), encoding, bit width (bytes), payload
+//   index    per block: min, max (ints), block offset, values before the block (longs)
+//   trailer  index offset (long), block count, magic (ints)
+public final class SortedIntFile {
+    static final int MAGIC = 0x49545253;
+    static final int VERSION = 1;
+    static final int BLOCK_VALUES = 1024;
+
+    private static final int HEADER_BYTES = 16, BLOCK_HEADER_BYTES = 18, INDEX_ENTRY_BYTES = 24, TRAILER_BYTES = 16;
+    private static final byte VARINT = 0, BIT_PACKED = 1;
+    private static final int IO_BUFFER = 1 << 20;
+
+    private final String name;
+    private final MappedByteBuffer data;
+    private final long size;
+    private final int[] blockMin, blockMax;
+    private final long[] blockOffset, rankBefore;
+
+    private SortedIntFile(String name, MappedByteBuffer data, long size, int[] blockMin, int[] blockMax,
+                          long[] blockOffset, long[] rankBefore) {
+        this.name = name;
+        this.data = data;
+        this.size = size;
+        this.blockMin = blockMin;
+        this.blockMax = blockMax;
+        this.blockOffset = blockOffset;
+        this.rankBefore = rankBefore;
+    }
+
+    public static void write(Path path, int[] sorted) throws IOException {
+        for(int i = 1; i < sorted.length; i++) {
+            if(sorted[i - 1] > sorted[i]) throw new IllegalArgumentException("Values are not sorted at index " + i);
+        }
+        int blocks = (sorted.length + BLOCK_VALUES - 1) / BLOCK_VALUES;
+        long[] offsets = new long[blocks];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        try(FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(sorted.length);
+            long position = 0;      // bytes already written out
+            // Largest possible block: every gap a 5-byte varint
+            int maxBlockBytes = BLOCK_HEADER_BYTES + 5 * BLOCK_VALUES;
+            for(int b = 0; b < blocks; b++) {
+                if(buffer.remaining() < maxBlockBytes) position += flush(out, buffer);
+                offsets[b] = position + buffer.position();
+                int from = b * BLOCK_VALUES, to = Math.min(sorted.length, from + BLOCK_VALUES);
+                encodeBlock(sorted, from, to, buffer);
+            }
+            position += flush(out, buffer);
+
+            for(int b = 0; b < blocks; b++) {
+                if(buffer.remaining() < INDEX_ENTRY_BYTES) flush(out, buffer);
+                int from = b * BLOCK_VALUES, to = Math.min(sorted.length, from + BLOCK_VALUES);
+                buffer.putInt(sorted[from]).putInt(sorted[to - 1]).putLong(offsets[b]).putLong(from);
+            }
+            if(buffer.remaining() < TRAILER_BYTES) flush(out, buffer);
+            buffer.putLong(position).putInt(blocks).putInt(MAGIC);
+            flush(out, buffer);
+        }
+    }
+
+    private static void encodeBlock(int[] sorted, int from, int to, ByteBuffer out) {
+        long maxGap = 0, varintBytes = 0;
+        for(int i = from + 1; i < to; i++) {
+            long gap = (long) sorted[i] - sorted[i - 1];
+            maxGap = Math.max(maxGap, gap);
+            varintBytes += varintLength(gap);
+        }
+        int width = 64 - Long.numberOfLeadingZeros(maxGap);
+        long packedBytes = ((long) (to - from - 1) * width + 7) / 8;
+        boolean packed = packedBytes <= varintBytes;
+        out.putInt(sorted[from]).putInt(sorted[to - 1]).putInt(to - from)
+                .putInt((int) (packed ? packedBytes : varintBytes))
+                .put(packed ? BIT_PACKED : VARINT).put((byte) width);
+        if(packed) {
+            long acc = 0;
+            int bits = 0;
+            for(int i = from + 1; i < to; i++) {
+                acc |= ((long) sorted[i] - sorted[i - 1]) << bits;
+                bits += width;
+                while(bits >= 8) {
+                    out.put((byte) acc);
+                    acc >>>= 8;
+                    bits -= 8;
+                }
+            }
+            if(bits > 0) out.put((byte) acc);
+        } else {
+            for(int i = from + 1; i < to; i++) {
+                long gap = (long) sorted[i] - sorted[i - 1];
+                while(gap >= 0x80) {
+                    out.put((byte) (gap | 0x80));
+                    gap >>>= 7;
+                }
+                out.put((byte) gap);
+            }
+        }
+    }
+
+    private static int varintLength(long v) {
+        return v < 1L << 7 ? 1 : v < 1L << 14 ? 2 : v < 1L << 21 ? 3 : v < 1L << 28 ? 4 : 5;
+    }
+
+    private static int flush(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        int bytes = buffer.remaining();
+        while(buffer.hasRemaining()) out.write(buffer);
+        buffer.clear();
+        return bytes;
+    }
+
+    // Maps the file and reads the index; blocks are only decoded when a query needs them
+    public static SortedIntFile open(Path path) throws IOException {
+        String name = path.toString();
+        MappedByteBuffer data;
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long bytes = channel.size();
+            if(bytes < HEADER_BYTES + TRAILER_BYTES) throw new IOException(name + ": too short for a sorted int file");
+            if(bytes > Integer.MAX_VALUE) throw new IOException(name + " is larger than one 2 GB mapping");
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+        }
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        int end = data.capacity();
+        if(data.getInt(0) != MAGIC || data.getInt(end - 4) != MAGIC) throw new IOException(name + ": not a sorted int file");
+        if(data.getInt(4) != VERSION) throw new IOException(name + ": unsupported version " + data.getInt(4));
+        long size = data.getLong(8);
+        long indexOffset = data.getLong(end - TRAILER_BYTES);
+        int blocks = data.getInt(end - 8);
+        if(blocks < 0 || indexOffset < HEADER_BYTES || indexOffset + (long) blocks * INDEX_ENTRY_BYTES != end - TRAILER_BYTES) {
+            throw new IOException(name + ": corrupt index");
+        }
+        int[] min = new int[blocks], max = new int[blocks];
+        long[] offset = new long[blocks], rank = new long[blocks];
+        for(int b = 0; b < blocks; b++) {
+            int at = (int) indexOffset + b * INDEX_ENTRY_BYTES;
+            min[b] = data.getInt(at);
+            max[b] = data.getInt(at + 4);
+            offset[b] = data.getLong(at + 8);
+            rank[b] = data.getLong(at + 16);
+            if(offset[b] < HEADER_BYTES || offset[b] >= indexOffset) throw new IOException(name + ": corrupt index");
+        }
+        return new SortedIntFile(name, data, size, min, max, offset, rank);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int blockCount() {
+        return blockMin.length;
+    }
+
+    public int[] readAll() throws IOException {
+        if(size > Integer.MAX_VALUE - 8) throw new IOException(name + " has " + size + " values, more than fit in one array");
+        int[] values = new int[(int) size];
+        int filled = 0;
+        for(int b = 0; b < blockMin.length; b++) filled += decodeBlock(b, values, filled);
+        if(filled != size) throw new IOException(name + ": blocks hold " + filled + " values, header says " + size);
+        return values;
+    }
+
+    // The values in [from, to), decoding only the blocks whose min/max overlap it
+    public int[] range(int from, int to) throws IOException {
+        if(from >= to) return new int[0];
+        int first = firstBlockReaching(from);
+        int[] block = new int[BLOCK_VALUES];
+        int[] result = new int[64];
+        int count = 0;
+        for(int b = first; b < blockMin.length && blockMin[b] < to; b++) {
+            int n = decodeBlock(b, block, 0);
+            int lo = blockMin[b] >= from ? 0 : lowerBound(block, n, from);
+            int hi = blockMax[b] < to ? n : lowerBound(block, n, to);
+            if(count + hi - lo > result.length) {
+                result = Arrays.copyOf(result, Math.max(count + hi - lo, result.length * 2));
+            }
+            System.arraycopy(block, lo, result, count, hi - lo);
+            count += hi - lo;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    // Number of values less than value; decodes at most one block
+    public long rank(int value) throws IOException {
+        int b = firstBlockReaching(value);
+        if(b == blockMin.length) return size;
+        if(blockMin[b] >= value) return rankBefore[b];
+        int[] block = new int[BLOCK_VALUES];
+        int n = decodeBlock(b, block, 0);
+        return rankBefore[b] + lowerBound(block, n, value);
+    }
+
+    // First block whose max is >= value
+    private int firstBlockReaching(int value) {
+        int lo = 0, hi = blockMax.length;
+        while(lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if(blockMax[mid] < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int decodeBlock(int b, int[] dst, int at) throws IOException {
+        int p = (int) blockOffset[b];
+        int value = data.getInt(p);
+        int count = data.getInt(p + 8);
+        int payload = data.getInt(p + 12);
+        byte encoding = data.get(p + 16);
+        int width = data.get(p + 17);
+        if(count < 1 || count > BLOCK_VALUES || at + count > dst.length || width < 0 || width > 32
+                || p + BLOCK_HEADER_BYTES + (long) payload > data.capacity()) {
+            throw new IOException(name + ": corrupt block " + b);
+        }
+        p += BLOCK_HEADER_BYTES;
+        dst[at] = value;
+        if(encoding == BIT_PACKED) {
+            long mask = (1L << width) - 1, acc = 0;
+            int bits = 0;
+            for(int i = 1; i < count; i++) {
+                while(bits < width) {
+                    acc |= (long) (data.get(p++) & 0xFF) << bits;
+                    bits += 8;
+                }
+                value += (int) (acc & mask);
+                acc >>>= width;
+                bits -= width;
+                dst[at + i] = value;
+            }
+        } else if(encoding == VARINT) {
+            for(int i = 1; i < count; i++) {
+                long gap = 0;
+                int shift = 0;
+                byte next;
+                do {
+                    next = data.get(p++);
+                    gap |= (long) (next & 0x7F) << shift;
+                    shift += 7;
+                } while(next < 0);
+                value += (int) gap;
+                dst[at + i] = value;
+            }
+        } else {
+            throw new IOException(name + ": unknown encoding " + encoding + " in block " + b);
+        }
+        return count;
+    }
+
+    private static int lowerBound(int[] values, int n, int value) {
+        int lo = 0, hi = n;
+        while(lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if(values[mid] < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,260 @@
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+// An int multiset that stays sorted as batches are appended, without re-sorting what is already
+// there. Each batch is sorted on its own (SortingAlgorithms.integerSort) and kept as an immutable
+// sorted run; runs are merged LSM-style in size tiers: a run's tier is floor(log4(length)), and
+// whenever the newest FANOUT runs share a tier they are merged into one run of the next tier up.
+// Every value is therefore rewritten about log4(size / batch) times in total, so an update costs
+// O(batch log(size / batch)) amortized, and there are never more than about
+// (FANOUT - 1) * log4(size) runs for queries to look at.
+//
+// Queries work on an immutable snapshot of the runs and never block. Compaction runs inline in
+// add() by default; with an Executor it runs there instead, and add() only compacts itself when
+// more than MAX_PENDING_RUNS runs have piled up or the executor rejects the task.
+public final class SortedRuns {
+    static final int FANOUT = 4;
+    static final int MAX_PENDING_RUNS = 64;
+
+    // The runs, oldest (and largest) first; replaced as a whole, never modified in place
+    private static final class Snapshot {
+        final int[][] runs;
+        final long size;
+
+        Snapshot(int[][] runs) {
+            this.runs = runs;
+            long total = 0;
+            for(int[] run : runs) total += run.length;
+            this.size = total;
+        }
+    }
+
+    private final Executor compactor;
+    private volatile Snapshot snapshot = new Snapshot(new int[0][]);
+    private boolean compacting;     // guarded by this
+
+    public SortedRuns() {
+        this(null);
+    }
+
+    // Compaction is handed to the executor; null compacts inline in add()
+    public SortedRuns(Executor compactor) {
+        this.compactor = compactor;
+    }
+
+    public void add(int... values) {
+        add(values, 0, values.length);
+    }
+
+    // Adds values[from, to); the array is copied and not modified
+    public void add(int[] values, int from, int to) {
+        if(from < 0 || to > values.length || from > to) {
+            throw new IllegalArgumentException("Invalid range [" + from + ", " + to + ") of " + values.length);
+        }
+        if(from == to) return;
+        int[] run = Arrays.copyOfRange(values, from, to);
+        SortingAlgorithms.integerSort(run);
+        synchronized(this) {
+            int[][] runs = snapshot.runs;
+            int[][] appended = Arrays.copyOf(runs, runs.length + 1);
+            appended[runs.length] = run;
+            snapshot = new Snapshot(appended);
+            if(compactor == null || appended.length > MAX_PENDING_RUNS) {
+                compactInline();
+            } else if(!compacting && plan(appended) != null) {
+                compacting = true;
+                try {
+                    compactor.execute(this::compactInBackground);
+                } catch(RejectedExecutionException e) {
+                    compacting = false;
+                    compactInline();
+                }
+            }
+        }
+    }
+
+    // Another SortedRuns with the same values and executor; the runs are shared, which is safe
+    // because they are never modified in place
+    SortedRuns copy() {
+        SortedRuns copy = new SortedRuns(compactor);
+        copy.snapshot = snapshot;
+        return copy;
+    }
+
+    public long size() {
+        return snapshot.size;
+    }
+
+    public int runCount() {
+        return snapshot.runs.length;
+    }
+
+    // Number of values less than value
+    public long rank(int value) {
+        long rank = 0;
+        for(int[] run : snapshot.runs) rank += lowerBound(run, value);
+        return rank;
+    }
+
+    // The value at index (0-based) in sorted order: a binary search over the int range for the
+    // smallest value with more than index values at or below it
+    public int select(long index) {
+        Snapshot s = snapshot;
+        if(index < 0 || index >= s.size) throw new IndexOutOfBoundsException("Index " + index + " of " + s.size);
+        long lo = Integer.MIN_VALUE, hi = Integer.MAX_VALUE;
+        while(lo < hi) {
+            long mid = (lo + hi) >> 1;
+            long atMost = 0;
+            for(int[] run : s.runs) atMost += upperBound(run, (int) mid);
+            if(atMost > index) hi = mid;
+            else lo = mid + 1;
+        }
+        return (int) lo;
+    }
+
+    // Number of values in [from, to)
+    public long count(int from, int to) {
+        if(from >= to) return 0;
+        long count = 0;
+        for(int[] run : snapshot.runs) count += lowerBound(run, to) - lowerBound(run, from);
+        return count;
+    }
+
+    // The values in [from, to), sorted
+    public int[] range(int from, int to) {
+        if(from >= to) return new int[0];
+        int[][] runs = snapshot.runs;
+        int[][] slices = new int[runs.length][];
+        for(int r = 0; r < runs.length; r++) {
+            slices[r] = Arrays.copyOfRange(runs[r], lowerBound(runs[r], from), lowerBound(runs[r], to));
+        }
+        return mergeAll(slices, 0, slices.length);
+    }
+
+    public int[] toSortedArray() {
+        Snapshot s = snapshot;
+        if(s.size > Integer.MAX_VALUE - 8) throw new IllegalStateException(s.size + " values do not fit in one array");
+        int[] merged = mergeAll(s.runs, 0, s.runs.length);
+        return s.runs.length == 1 ? merged.clone() : merged;
+    }
+
+    // Merges everything into a single run, e.g. before a read-heavy phase
+    public synchronized void compact() {
+        int[][] runs = snapshot.runs;
+        if(runs.length > 1) install(runs, 0, runs.length, mergeAll(runs, 0, runs.length));
+    }
+
+    // [from, to) of the runs to merge next, or null when the tiers are in shape. A run larger
+    // than the ones before it is first merged down into them, so tiers only shrink towards the
+    // newest run; after that, FANOUT runs of the lowest tier are merged into one.
+    static int[] plan(int[][] runs) {
+        int k = runs.length;
+        if(k >= 2 && tier(runs[k - 2]) < tier(runs[k - 1])) {
+            int from = k - 1;
+            while(from > 0 && tier(runs[from - 1]) <= tier(runs[k - 1])) from--;
+            return new int[]{from, k};
+        }
+        if(k >= FANOUT && tier(runs[k - FANOUT]) == tier(runs[k - 1])) return new int[]{k - FANOUT, k};
+        return null;
+    }
+
+    private static int tier(int[] run) {
+        return (31 - Integer.numberOfLeadingZeros(Math.max(1, run.length))) >> 1;
+    }
+
+    private void compactInline() {
+        int[] plan;
+        while((plan = plan(snapshot.runs)) != null) {
+            int[][] runs = snapshot.runs;
+            install(runs, plan[0], plan[1], mergeAll(runs, plan[0], plan[1]));
+        }
+    }
+
+    // Merges outside the lock so adds and queries carry on meanwhile
+    private void compactInBackground() {
+        try {
+            while(true) {
+                int[][] runs;
+                int[] plan;
+                synchronized(this) {
+                    runs = snapshot.runs;
+                    plan = plan(runs);
+                    if(plan == null) {
+                        compacting = false;
+                        return;
+                    }
+                }
+                int[] merged = mergeAll(runs, plan[0], plan[1]);
+                synchronized(this) {
+                    install(runs, plan[0], plan[1], merged);
+                }
+            }
+        } catch(RuntimeException | Error e) {
+            synchronized(this) {
+                compacting = false;
+            }
+            throw e;
+        }
+    }
+
+    // Replaces runs[from, to) with merged, unless an inline compaction already changed them
+    private void install(int[][] runs, int from, int to, int[] merged) {
+        int[][] current = snapshot.runs;
+        if(current.length < to) return;
+        for(int r = from; r < to; r++) {
+            if(current[r] != runs[r]) return;
+        }
+        int[][] replaced = new int[current.length - (to - from) + 1][];
+        System.arraycopy(current, 0, replaced, 0, from);
+        replaced[from] = merged;
+        System.arraycopy(current, to, replaced, from + 1, current.length - to);
+        snapshot = new Snapshot(replaced);
+    }
+
+    // Balanced pairwise merging, so every value is copied about log2(to - from) times
+    static int[] mergeAll(int[][] runs, int from, int to) {
+        if(to - from == 0) return new int[0];
+        if(to - from == 1) return runs[from];
+        int mid = (from + to) >>> 1;
+        return merge(mergeAll(runs, from, mid), mergeAll(runs, mid, to));
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        if(a.length > 0 && b.length > 0 && a[a.length - 1] <= b[0]) {
+            System.arraycopy(a, 0, out, 0, a.length);
+            System.arraycopy(b, 0, out, a.length, b.length);
+            return out;
+        }
+        while(i < a.length && j < b.length) {
+            out[k++] = b[j] < a[i] ? b[j++] : a[i++];
+        }
+        System.arraycopy(a, i, out, k, a.length - i);
+        System.arraycopy(b, j, out, k + a.length - i, b.length - j);
+        return out;
+    }
+
+    // First index whose value is >= value
+    private static int lowerBound(int[] run, int value) {
+        int lo = 0, hi = run.length;
+        while(lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if(run[mid] < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // First index whose value is > value
+    private static int upperBound(int[] run, int value) {
+        int lo = 0, hi = run.length;
+        while(lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if(run[mid] <= value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
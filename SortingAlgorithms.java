@@ -1,14 +1,55 @@
+import java.nio.IntBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.function.ToLongFunction;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
 
 public class SortingAlgorithms {
 
+    // Each sort that Visualizer animates also takes a SortProbe (an OperationTrace to replay,
+    // SortCounters to count) that it reports its operations to, and so do the production sorts
+    // intro, buffered merge and adaptive merge. The plain overloads pass null, which records
+    // nothing.
+
+    // Runs one of the probe-taking sorts by name
+    public static void sort(String algorithm, int[] arr, SortProbe probe) {
+        switch(algorithm) {
+            case "bubble": bubbleSort(arr, probe); break;
+            case "selection": selectionSort(arr, probe); break;
+            case "insertion": insertionSort(arr, probe); break;
+            case "merge": mergeSort(arr, probe); break;
+            case "quick": quickSort(arr, probe); break;
+            case "counting": countingSort(arr, probe); break;
+            case "radix": radixSort(arr, 8, probe); break;
+            case "americanflag": americanFlagSort(arr, probe); break;
+            case "intro": introSort(arr, probe); break;
+            case "bufferedmerge": bufferedMergeSort(arr, probe); break;
+            case "adaptive": adaptiveMergeSort(arr, probe); break;
+            default: throw new IllegalArgumentException("No instrumented sort named " + algorithm);
+        }
+    }
+
     // Bubble Sort
     public static void bubbleSort(int[] arr) {
+        bubbleSort(arr, null);
+    }
+
+    public static void bubbleSort(int[] arr, SortProbe probe) {
         int n = arr.length;
         for(int i = 0; i < n-1; i++) {
             for(int j = 0; j < n-i-1; j++) {
+                if(probe != null) probe.compare(j, j+1);
                 if(arr[j] > arr[j+1]) {
                     // swap
+                    if(probe != null) probe.swap(j, j+1);
                     int temp = arr[j];
                     arr[j] = arr[j+1];
                     arr[j+1] = temp;
@@ -19,14 +60,20 @@ public class SortingAlgorithms {
 
     // Selection Sort
     public static void selectionSort(int[] arr) {
+        selectionSort(arr, null);
+    }
+
+    public static void selectionSort(int[] arr, SortProbe probe) {
         int n = arr.length;
         for(int i = 0; i < n-1; i++) {
             int minIndex = i;
             for(int j = i+1; j < n; j++) {
+                if(probe != null) probe.compare(j, minIndex);
                 if(arr[j] < arr[minIndex]) {
                     minIndex = j;
                 }
             }
+            if(probe != null) probe.swap(i, minIndex);
             int temp = arr[i];
             arr[i] = arr[minIndex];
             arr[minIndex] = temp;
@@ -35,33 +82,52 @@ public class SortingAlgorithms {
 
     // Insertion Sort
     public static void insertionSort(int[] arr) {
+        insertionSort(arr, null);
+    }
+
+    public static void insertionSort(int[] arr, SortProbe probe) {
         int n = arr.length;
         for(int i = 1; i < n; i++) {
             int key = arr[i];
             int j = i - 1;
-            while(j >= 0 && arr[j] > key) {
+            // The key is held aside, so the hole at j+1 stands in for it
+            while(j >= 0 && compare(probe, j, j+1) && arr[j] > key) {
+                if(probe != null) probe.write(j+1, arr[j]);
                 arr[j+1] = arr[j];
                 j--;
             }
+            if(probe != null) probe.write(j+1, key);
             arr[j+1] = key;
         }
     }
 
+    // Records a comparison and returns true so it can sit inside a loop condition
+    private static boolean compare(SortProbe probe, int i, int j) {
+        if(probe != null) probe.compare(i, j);
+        return true;
+    }
+
     // Merge Sort
     public static void mergeSort(int[] arr) {
-        mergeSortRecursive(arr, 0, arr.length - 1);
+        mergeSort(arr, (SortProbe) null);
+    }
+
+    public static void mergeSort(int[] arr, SortProbe probe) {
+        mergeSortRecursive(arr, 0, arr.length - 1, probe);
     }
 
-    private static void mergeSortRecursive(int[] arr, int left, int right) {
+    private static void mergeSortRecursive(int[] arr, int left, int right, SortProbe probe) {
         if(left < right) {
+            if(probe != null) probe.enter();
             int mid = (left + right) / 2;
-            mergeSortRecursive(arr, left, mid);
-            mergeSortRecursive(arr, mid+1, right);
-            merge(arr, left, mid, right);
+            mergeSortRecursive(arr, left, mid, probe);
+            mergeSortRecursive(arr, mid+1, right, probe);
+            merge(arr, left, mid, right, probe);
+            if(probe != null) probe.exit();
         }
     }
 
-    private static void merge(int[] arr, int left, int mid, int right) {
+    private static void merge(int[] arr, int left, int mid, int right, SortProbe probe) {
         int n1 = mid - left + 1;
         int n2 = right - mid;
 
@@ -71,6 +137,11 @@ public class SortingAlgorithms {
         for(int i = 0; i < n1; i++) L[i] = arr[left + i];
         for(int j = 0; j < n2; j++) R[j] = arr[mid + 1 + j];
 
+        if(probe != null) {
+            probe.allocated((long) (n1 + n2) * Integer.BYTES);
+            mergeTraced(arr, left, mid, L, R, probe);
+            return;
+        }
         int i = 0, j = 0, k = left;
         while(i < n1 && j < n2) {
             if(L[i] <= R[j]) arr[k++] = L[i++];
@@ -80,33 +151,1326 @@ public class SortingAlgorithms {
         while(j < n2) arr[k++] = R[j++];
     }
 
+    // Same merge as above; comparisons are reported at the positions the two heads came from
+    private static void mergeTraced(int[] arr, int left, int mid, int[] L, int[] R, SortProbe probe) {
+        int n1 = L.length, n2 = R.length;
+        probe.range(left, mid + n2);
+        int i = 0, j = 0, k = left;
+        while(i < n1 && j < n2) {
+            probe.compare(left + i, mid + 1 + j);
+            if(L[i] <= R[j]) {
+                probe.write(k, L[i]);
+                arr[k++] = L[i++];
+            } else {
+                probe.write(k, R[j]);
+                arr[k++] = R[j++];
+            }
+        }
+        while(i < n1) {
+            probe.write(k, L[i]);
+            arr[k++] = L[i++];
+        }
+        while(j < n2) {
+            probe.write(k, R[j]);
+            arr[k++] = R[j++];
+        }
+    }
+
+    // Buffered Merge Sort
+    // Same algorithm, but with one auxiliary array for the whole sort instead of two per merge.
+    // Passing the buffer in lets a long-lived caller sort repeatedly without allocating.
+    static final int INSERTION_CUTOFF = 16;
+
+    public static void bufferedMergeSort(int[] arr) {
+        bufferedMergeSort(arr, null);
+    }
+
+    public static void bufferedMergeSort(int[] arr, SortProbe probe) {
+        if(probe != null) probe.allocated((long) arr.length * Integer.BYTES);
+        mergeSort(arr, new int[arr.length], probe);
+    }
+
+    public static void mergeSort(int[] arr, int[] buffer) {
+        mergeSort(arr, buffer, null);
+    }
+
+    private static void mergeSort(int[] arr, int[] buffer, SortProbe probe) {
+        if(buffer.length < arr.length) {
+            throw new IllegalArgumentException("Buffer length " + buffer.length + " is smaller than array length " + arr.length);
+        }
+        if(arr.length < 2) return;
+        System.arraycopy(arr, 0, buffer, 0, arr.length);
+        mergeSortInto(buffer, arr, 0, arr.length - 1, probe);
+    }
+
+    // Sorts dst[left..right]; src must hold the same values on entry and is used as scratch.
+    // The two arrays swap roles at each level, so merged runs never have to be copied back.
+    // Writes into either array are reported at their index.
+    private static void mergeSortInto(int[] src, int[] dst, int left, int right) {
+        mergeSortInto(src, dst, left, right, null);
+    }
+
+    private static void mergeSortInto(int[] src, int[] dst, int left, int right, SortProbe probe) {
+        if(right - left < INSERTION_CUTOFF) {
+            if(probe != null) insertionSortTraced(dst, left, right, probe);
+            else insertionSort(dst, left, right);
+            return;
+        }
+        if(probe != null) probe.enter();
+        int mid = (left + right) >>> 1;
+        mergeSortInto(dst, src, left, mid, probe);
+        mergeSortInto(dst, src, mid + 1, right, probe);
+        if(compare(probe, mid, mid + 1) && src[mid] <= src[mid + 1]) {
+            // Halves are already in order, nothing to merge
+            System.arraycopy(src, left, dst, left, right - left + 1);
+            if(probe != null) {
+                written(probe, dst, left, right + 1);
+                probe.exit();
+            }
+            return;
+        }
+        if(probe != null) probe.range(left, right);
+        int i = left, j = mid + 1;
+        for(int k = left; k <= right; k++) {
+            if(i > mid) dst[k] = src[j++];
+            else if(j > right) dst[k] = src[i++];
+            else if(compare(probe, j, i) && src[j] < src[i]) dst[k] = src[j++];
+            else dst[k] = src[i++];
+            if(probe != null) probe.write(k, dst[k]);
+        }
+        if(probe != null) probe.exit();
+    }
+
+    // Reports a bulk copy into arr[from, to) as one write per element
+    private static void written(SortProbe probe, int[] arr, int from, int to) {
+        for(int k = from; k < to; k++) probe.write(k, arr[k]);
+    }
+
+    private static void insertionSortTraced(int[] arr, int low, int high, SortProbe probe) {
+        probe.range(low, high);
+        for(int i = low + 1; i <= high; i++) {
+            int key = arr[i];
+            int j = i - 1;
+            while(j >= low && compare(probe, j, j+1) && arr[j] > key) {
+                probe.write(j+1, arr[j]);
+                arr[j+1] = arr[j];
+                j--;
+            }
+            probe.write(j+1, key);
+            arr[j+1] = key;
+        }
+    }
+
+    static void insertionSort(int[] arr, int low, int high) {
+        for(int i = low + 1; i <= high; i++) {
+            int key = arr[i];
+            int j = i - 1;
+            while(j >= low && arr[j] > key) {
+                arr[j+1] = arr[j];
+                j--;
+            }
+            arr[j+1] = key;
+        }
+    }
+
+    // Adaptive Merge Sort (powersort)
+    // Natural merge sort: finds ascending and strictly descending runs (reversing the latter),
+    // pads short runs to MIN_RUN with binary insertion sort, and merges neighbours in the order
+    // given by powersort's node powers, which keeps the merge tree nearly optimal for the run
+    // lengths found. Merges trim elements that are already in place and gallop through long
+    // one-sided streaks, so presorted input costs O(n). With a probe, the depth is the height of
+    // the run stack, and comparisons against a value held outside arr (a gallop key, the merge
+    // buffer) are reported at the arr index it came from or is headed to.
+    static final int MIN_RUN = 32;
+    static final int MIN_GALLOP = 7;
+
+    public static void adaptiveMergeSort(int[] arr) {
+        adaptiveMergeSort(arr, null);
+    }
+
+    public static void adaptiveMergeSort(int[] arr, SortProbe probe) {
+        int n = arr.length;
+        if(n < 2) return;
+        int[] runStart = new int[34];
+        int[] runPower = new int[34];
+        int[][] buffer = {new int[Math.min(n / 2 + 1, 256)]};
+        if(probe != null) probe.allocated((long) buffer[0].length * Integer.BYTES);
+        int top = 0;
+        int start = 0;
+        int end = extendRun(arr, 0, n, probe);
+        while(end < n) {
+            int nextEnd = extendRun(arr, end, n, probe);
+            int power = nodePower(n, start, end, nextEnd);
+            while(top > 0 && runPower[top] > power) {
+                mergeRuns(arr, runStart[top], start, end, buffer, probe);
+                start = runStart[top--];
+                if(probe != null) probe.exit();
+            }
+            top++;
+            if(probe != null) probe.enter();
+            runStart[top] = start;
+            runPower[top] = power;
+            start = end;
+            end = nextEnd;
+        }
+        while(top > 0) {
+            mergeRuns(arr, runStart[top], start, end, buffer, probe);
+            start = runStart[top--];
+            if(probe != null) probe.exit();
+        }
+    }
+
+    // Returns the end (exclusive) of the run starting at start, at least MIN_RUN long unless the array ends first
+    private static int extendRun(int[] arr, int start, int n, SortProbe probe) {
+        int end = start + 1;
+        if(end == n) return n;
+        if(probe != null) probe.range(start, Math.min(n, start + MIN_RUN) - 1);
+        if(compare(probe, end, start) && arr[end] < arr[start]) {
+            while(end + 1 < n && compare(probe, end + 1, end) && arr[end + 1] < arr[end]) end++;
+            for(int a = start, b = end; a < b; a++, b--) {
+                if(probe != null) probe.swap(a, b);
+                swap(arr, a, b);
+            }
+        } else {
+            while(end + 1 < n && compare(probe, end + 1, end) && arr[end + 1] >= arr[end]) end++;
+        }
+        end++;
+        if(end - start < MIN_RUN) {
+            int padded = Math.min(n, start + MIN_RUN);
+            binaryInsertionSort(arr, start, padded, end, probe);
+            end = padded;
+        }
+        return end;
+    }
+
+    // Sorts arr[low, high) given that arr[low, sorted) is already in order
+    private static void binaryInsertionSort(int[] arr, int low, int high, int sorted, SortProbe probe) {
+        for(int i = sorted; i < high; i++) {
+            int key = arr[i];
+            int pos = gallop(key, arr, low, i, true, false, i, probe);
+            System.arraycopy(arr, pos, arr, pos + 1, i - pos);
+            arr[pos] = key;
+            if(probe != null) written(probe, arr, pos, i + 1);
+        }
+    }
+
+    // Depth of the boundary between runs [start, mid) and [mid, end) in a perfectly balanced
+    // merge tree over [0, n); a run is merged before pushing a boundary of lower power
+    private static int nodePower(int n, int start, int mid, int end) {
+        long l = (long) start + mid;
+        long r = (long) mid + end;
+        int a = (int) ((l << 30) / n);
+        int b = (int) ((r << 30) / n);
+        return Integer.numberOfLeadingZeros(a ^ b);
+    }
+
+    // Merges the adjacent sorted runs arr[low, mid) and arr[mid, high)
+    private static void mergeRuns(int[] arr, int low, int mid, int high, int[][] buffer, SortProbe probe) {
+        if(compare(probe, mid - 1, mid) && arr[mid - 1] <= arr[mid]) return;
+        if(probe != null) probe.range(low, high - 1);
+        // Left elements no bigger than the right run's head, and right elements no smaller
+        // than the left run's tail, are already where they belong
+        low = gallop(arr[mid], arr, low, mid, true, false, mid, probe);
+        high = gallop(arr[mid - 1], arr, mid, high, false, true, mid - 1, probe);
+        int len1 = mid - low, len2 = high - mid;
+        if(buffer[0].length < Math.min(len1, len2)) {
+            buffer[0] = new int[Math.max(Math.min(len1, len2), buffer[0].length * 2)];
+            if(probe != null) probe.allocated((long) buffer[0].length * Integer.BYTES);
+        }
+        if(len1 <= len2) mergeLow(arr, low, mid, high, buffer[0], probe);
+        else mergeHigh(arr, low, mid, high, buffer[0], probe);
+    }
+
+    // Left run is the shorter one: copy it out and merge front to back
+    private static void mergeLow(int[] arr, int low, int mid, int high, int[] tmp, SortProbe probe) {
+        int len1 = mid - low;
+        System.arraycopy(arr, low, tmp, 0, len1);
+        int i = 0, j = mid, k = low;
+        int leftWins = 0, rightWins = 0;
+        while(i < len1 && j < high) {
+            if(compare(probe, j, low + i) && arr[j] < tmp[i]) {
+                if(probe != null) probe.write(k, arr[j]);
+                arr[k++] = arr[j++];
+                rightWins++;
+                leftWins = 0;
+            } else {
+                if(probe != null) probe.write(k, tmp[i]);
+                arr[k++] = tmp[i++];
+                leftWins++;
+                rightWins = 0;
+            }
+            if(leftWins >= MIN_GALLOP && i < len1 && j < high) {
+                int count = gallop(arr[j], tmp, i, len1, true, false, j, probe) - i;
+                System.arraycopy(tmp, i, arr, k, count);
+                if(probe != null) written(probe, arr, k, k + count);
+                i += count;
+                k += count;
+                leftWins = 0;
+            } else if(rightWins >= MIN_GALLOP && i < len1 && j < high) {
+                int count = gallop(tmp[i], arr, j, high, false, false, k, probe) - j;
+                System.arraycopy(arr, j, arr, k, count);
+                if(probe != null) written(probe, arr, k, k + count);
+                j += count;
+                k += count;
+                rightWins = 0;
+            }
+        }
+        System.arraycopy(tmp, i, arr, k, len1 - i);
+        if(probe != null) written(probe, arr, k, k + len1 - i);
+    }
+
+    // Right run is the shorter one: copy it out and merge back to front
+    private static void mergeHigh(int[] arr, int low, int mid, int high, int[] tmp, SortProbe probe) {
+        int len2 = high - mid;
+        System.arraycopy(arr, mid, tmp, 0, len2);
+        int i = mid - 1, j = len2 - 1, k = high - 1;
+        int leftWins = 0, rightWins = 0;
+        while(i >= low && j >= 0) {
+            if(compare(probe, mid + j, i) && tmp[j] < arr[i]) {
+                if(probe != null) probe.write(k, arr[i]);
+                arr[k--] = arr[i--];
+                leftWins++;
+                rightWins = 0;
+            } else {
+                if(probe != null) probe.write(k, tmp[j]);
+                arr[k--] = tmp[j--];
+                rightWins++;
+                leftWins = 0;
+            }
+            if(leftWins >= MIN_GALLOP && i >= low && j >= 0) {
+                int from = gallop(tmp[j], arr, low, i + 1, true, true, k, probe);
+                int count = i + 1 - from;
+                System.arraycopy(arr, from, arr, k - count + 1, count);
+                if(probe != null) written(probe, arr, k - count + 1, k + 1);
+                i -= count;
+                k -= count;
+                leftWins = 0;
+            } else if(rightWins >= MIN_GALLOP && i >= low && j >= 0) {
+                int from = gallop(arr[i], tmp, 0, j + 1, false, true, i, probe);
+                int count = j + 1 - from;
+                System.arraycopy(tmp, from, arr, k - count + 1, count);
+                if(probe != null) written(probe, arr, k - count + 1, k + 1);
+                j -= count;
+                k -= count;
+                rightWins = 0;
+            }
+        }
+        System.arraycopy(tmp, 0, arr, low, j + 1);
+        if(probe != null) written(probe, arr, low, low + j + 1);
+    }
+
+    // First index in a[from, to) whose value comes after key: a[x] > key when inclusive,
+    // a[x] >= key otherwise. Probes at exponentially growing distances from one end, then
+    // binary searches the last gap, so a short answer near that end costs O(log distance).
+    // keyIndex is where the key sits in arr, for the probe.
+    private static int gallop(int key, int[] a, int from, int to, boolean inclusive, boolean fromEnd, int keyIndex,
+                              SortProbe probe) {
+        int lo = from, hi = to;
+        int step = 1;
+        if(fromEnd) {
+            int p = to - 1;
+            while(p >= from && compare(probe, p, keyIndex) && !(inclusive ? a[p] <= key : a[p] < key)) {
+                hi = p;
+                p = to - 1 - step;
+                step <<= 1;
+            }
+            lo = p < from ? from : p + 1;
+        } else {
+            int p = from;
+            while(p < to && compare(probe, p, keyIndex) && (inclusive ? a[p] <= key : a[p] < key)) {
+                lo = p + 1;
+                p = from + step;
+                step <<= 1;
+            }
+            hi = p < to ? p : to;
+        }
+        while(lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if(compare(probe, mid, keyIndex) && (inclusive ? a[mid] <= key : a[mid] < key)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
     // Quick Sort
     public static void quickSort(int[] arr) {
-        quickSortRecursive(arr, 0, arr.length - 1);
+        quickSort(arr, null);
+    }
+
+    public static void quickSort(int[] arr, SortProbe probe) {
+        quickSortRecursive(arr, 0, arr.length - 1, probe);
     }
 
-    private static void quickSortRecursive(int[] arr, int low, int high) {
+    private static void quickSortRecursive(int[] arr, int low, int high, SortProbe probe) {
         if(low < high) {
-            int pi = partition(arr, low, high);
-            quickSortRecursive(arr, low, pi-1);
-            quickSortRecursive(arr, pi+1, high);
+            if(probe != null) probe.enter();
+            int pi = partition(arr, low, high, probe);
+            quickSortRecursive(arr, low, pi-1, probe);
+            quickSortRecursive(arr, pi+1, high, probe);
+            if(probe != null) probe.exit();
         }
     }
 
-    private static int partition(int[] arr, int low, int high) {
+    private static int partition(int[] arr, int low, int high, SortProbe probe) {
+        if(probe != null) probe.range(low, high);
         int pivot = arr[high];
         int i = (low-1);
         for(int j = low; j < high; j++) {
+            if(probe != null) probe.compare(j, high);
             if(arr[j] < pivot) {
                 i++;
+                if(probe != null && i != j) probe.swap(i, j);
                 int temp = arr[i];
                 arr[i] = arr[j];
                 arr[j] = temp;
             }
         }
+        if(probe != null && i+1 != high) probe.swap(i+1, high);
         int temp = arr[i+1];
         arr[i+1] = arr[high];
         arr[high] = temp;
         return (i+1);
     }
-}
\ No newline at end of file
+
+    // Intro Sort
+    // Quicksort with a sampled pivot (median of three, ninther on large ranges), three-way
+    // partitioning, insertion sort on small ranges and recursion only into the smaller side.
+    // Once the depth budget of 2*log2(n) is spent the range is heapsorted, so the worst case
+    // stays O(n log n).
+    static final int NINTHER_THRESHOLD = 128;
+
+    public static void introSort(int[] arr) {
+        introSort(arr, null);
+    }
+
+    public static void introSort(int[] arr, SortProbe probe) {
+        if(arr.length < 2) return;
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(arr.length));
+        introSort(arr, 0, arr.length - 1, depthLimit, probe);
+    }
+
+    static void introSort(int[] arr, int low, int high, int depthLimit) {
+        introSort(arr, low, high, depthLimit, null);
+    }
+
+    private static void introSort(int[] arr, int low, int high, int depthLimit, SortProbe probe) {
+        if(probe != null) probe.enter();
+        while(high - low >= INSERTION_CUTOFF) {
+            if(depthLimit-- == 0) {
+                heapSort(arr, low, high, probe);
+                if(probe != null) probe.exit();
+                return;
+            }
+            long bounds = partitionThreeWay(arr, low, high, arr[selectPivot(arr, low, high, probe)], probe);
+            int lt = (int) (bounds >>> 32), gt = (int) bounds;
+
+            if(lt - low < high - gt) {
+                introSort(arr, low, lt - 1, depthLimit, probe);
+                low = gt + 1;
+            } else {
+                introSort(arr, gt + 1, high, depthLimit, probe);
+                high = lt - 1;
+            }
+        }
+        if(probe != null) {
+            if(low < high) insertionSortTraced(arr, low, high, probe);
+            probe.exit();
+        } else {
+            insertionSort(arr, low, high);
+        }
+    }
+
+    // Dutch national flag: afterwards [low, lt) < pivot, [lt, gt] == pivot, (gt, high] > pivot.
+    // Returns lt in the high and gt in the low 32 bits.
+    static long partitionThreeWay(int[] arr, int low, int high, int pivot) {
+        return partitionThreeWay(arr, low, high, pivot, null);
+    }
+
+    // The pivot value has no fixed index, so comparisons with it are reported against lt
+    private static long partitionThreeWay(int[] arr, int low, int high, int pivot, SortProbe probe) {
+        if(probe != null) probe.range(low, high);
+        int lt = low, i = low, gt = high;
+        while(i <= gt) {
+            if(compare(probe, i, lt) && arr[i] < pivot) {
+                if(probe != null && lt != i) probe.swap(lt, i);
+                swap(arr, lt++, i++);
+            } else if(compare(probe, i, lt) && arr[i] > pivot) {
+                if(probe != null && i != gt) probe.swap(i, gt);
+                swap(arr, i, gt--);
+            } else {
+                i++;
+            }
+        }
+        return (long) lt << 32 | (gt & 0xFFFFFFFFL);
+    }
+
+    static int selectPivot(int[] arr, int low, int high) {
+        return selectPivot(arr, low, high, null);
+    }
+
+    private static int selectPivot(int[] arr, int low, int high, SortProbe probe) {
+        int mid = (low + high) >>> 1;
+        int n = high - low + 1;
+        if(n < NINTHER_THRESHOLD) return medianOfThree(arr, low, mid, high, probe);
+        int step = n / 8;
+        return medianOfThree(arr,
+                medianOfThree(arr, low, low + step, low + 2 * step, probe),
+                medianOfThree(arr, mid - step, mid, mid + step, probe),
+                medianOfThree(arr, high - 2 * step, high - step, high, probe), probe);
+    }
+
+    private static int medianOfThree(int[] arr, int a, int b, int c, SortProbe probe) {
+        if(compare(probe, a, b) && arr[a] < arr[b]) {
+            if(compare(probe, b, c) && arr[b] < arr[c]) return b;
+            return compare(probe, a, c) && arr[a] < arr[c] ? c : a;
+        }
+        if(compare(probe, a, c) && arr[a] < arr[c]) return a;
+        return compare(probe, b, c) && arr[b] < arr[c] ? c : b;
+    }
+
+    // Kernel Sorts
+    // Intro sort and bottom-up merge sort whose small blocks and merges come from a SortKernel:
+    // SIMD sorting networks when the optional Vector API kernel is available, scalar code
+    // otherwise (see SortKernels).
+    public static void kernelIntroSort(int[] arr) {
+        kernelIntroSort(arr, SortKernels.get());
+    }
+
+    public static void kernelIntroSort(int[] arr, SortKernel kernel) {
+        if(arr.length < 2) return;
+        kernelIntroSort(arr, 0, arr.length - 1, 2 * (31 - Integer.numberOfLeadingZeros(arr.length)), kernel);
+    }
+
+    private static void kernelIntroSort(int[] arr, int low, int high, int depthLimit, SortKernel kernel) {
+        while(high - low >= SortKernel.BLOCK) {
+            if(depthLimit-- == 0) {
+                heapSort(arr, low, high);
+                return;
+            }
+            long bounds = partitionThreeWay(arr, low, high, arr[selectPivot(arr, low, high)]);
+            int lt = (int) (bounds >>> 32), gt = (int) bounds;
+            if(lt - low < high - gt) {
+                kernelIntroSort(arr, low, lt - 1, depthLimit, kernel);
+                low = gt + 1;
+            } else {
+                kernelIntroSort(arr, gt + 1, high, depthLimit, kernel);
+                high = lt - 1;
+            }
+        }
+        if(high > low) kernel.sortBlock(arr, low, high);
+    }
+
+    public static void kernelMergeSort(int[] arr) {
+        kernelMergeSort(arr, SortKernels.get());
+    }
+
+    public static void kernelMergeSort(int[] arr, SortKernel kernel) {
+        int n = arr.length;
+        if(n < 2) return;
+        for(int low = 0; low < n; low += SortKernel.BLOCK) {
+            kernel.sortBlock(arr, low, Math.min(low + SortKernel.BLOCK, n) - 1);
+        }
+        int[] src = arr, dst = new int[n];
+        for(int width = SortKernel.BLOCK; width < n; width <<= 1) {
+            for(int low = 0; low < n; low += 2 * width) {
+                int mid = Math.min(low + width, n), high = Math.min(low + 2 * width, n);
+                if(mid == high || src[mid - 1] <= src[mid]) {
+                    System.arraycopy(src, low, dst, low, high - low);
+                } else {
+                    kernel.merge(src, low, mid, high, dst);
+                }
+            }
+            int[] temp = src;
+            src = dst;
+            dst = temp;
+        }
+        if(src != arr) System.arraycopy(src, 0, arr, 0, n);
+    }
+
+    // Heap Sort (fallback for intro sort)
+    static void heapSort(int[] arr, int low, int high) {
+        heapSort(arr, low, high, null);
+    }
+
+    private static void heapSort(int[] arr, int low, int high, SortProbe probe) {
+        if(probe != null) probe.range(low, high);
+        int n = high - low + 1;
+        for(int i = n / 2 - 1; i >= 0; i--) siftDown(arr, low, i, n, probe);
+        for(int end = n - 1; end > 0; end--) {
+            if(probe != null) probe.swap(low, low + end);
+            swap(arr, low, low + end);
+            siftDown(arr, low, 0, end, probe);
+        }
+    }
+
+    private static void siftDown(int[] arr, int offset, int i, int n) {
+        siftDown(arr, offset, i, n, null);
+    }
+
+    private static void siftDown(int[] arr, int offset, int i, int n, SortProbe probe) {
+        int value = arr[offset + i];
+        int start = offset + i;
+        while(true) {
+            int child = 2 * i + 1;
+            if(child >= n) break;
+            if(child + 1 < n && compare(probe, offset + child + 1, offset + child)
+                    && arr[offset + child + 1] > arr[offset + child]) child++;
+            if(compare(probe, offset + child, start) && arr[offset + child] <= value) break;
+            if(probe != null) probe.write(offset + i, arr[offset + child]);
+            arr[offset + i] = arr[offset + child];
+            i = child;
+        }
+        if(probe != null) probe.write(offset + i, value);
+        arr[offset + i] = value;
+    }
+
+    // Selection
+    // Introselect on the intro sort partition: only the side holding the wanted rank is
+    // partitioned further, so finding one rank costs O(n) on average. If the depth budget
+    // runs out the remaining range is heapsorted instead, bounding the worst case at O(n log n).
+
+    // Puts the k-th smallest value (0-based) at arr[k], with nothing larger before it and
+    // nothing smaller after it
+    public static void nthElement(int[] arr, int k) {
+        if(k < 0 || k >= arr.length) throw new IllegalArgumentException("Rank " + k + " out of range for " + arr.length + " elements");
+        int low = 0, high = arr.length - 1;
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(arr.length));
+        while(high - low >= INSERTION_CUTOFF) {
+            if(depthLimit-- == 0) {
+                heapSort(arr, low, high);
+                return;
+            }
+            long bounds = partitionThreeWay(arr, low, high, arr[selectPivot(arr, low, high)]);
+            int lt = (int) (bounds >>> 32), gt = (int) bounds;
+            if(k < lt) high = lt - 1;
+            else if(k > gt) low = gt + 1;
+            else return;
+        }
+        insertionSort(arr, low, high);
+    }
+
+    // The k smallest values in order in arr[0, k); the rest of the array is left unordered
+    public static void partialSort(int[] arr, int k) {
+        if(k < 0 || k > arr.length) throw new IllegalArgumentException("Cannot sort " + k + " of " + arr.length + " elements");
+        if(k == 0) return;
+        if(k < arr.length) nthElement(arr, k - 1);
+        introSort(arr, 0, k - 1, 2 * (32 - Integer.numberOfLeadingZeros(k)));
+    }
+
+    // The k smallest values of a stream in ascending order, holding only k values at a time
+    public static int[] topK(IntStream values, int k) {
+        return topK(values.iterator(), k);
+    }
+
+    public static int[] topK(PrimitiveIterator.OfInt values, int k) {
+        if(k < 0) throw new IllegalArgumentException("k must not be negative: " + k);
+        if(k == 0) return new int[0]; // Nothing to keep, so don't drain a possibly endless stream
+        // Max-heap of the smallest values seen so far; its root is the one to evict next
+        int[] heap = new int[k];
+        int size = 0;
+        while(size < k && values.hasNext()) heap[size++] = values.nextInt();
+        if(size < k) {
+            introSort(heap, 0, size - 1, 2 * (32 - Integer.numberOfLeadingZeros(size)));
+            return Arrays.copyOf(heap, size);
+        }
+        for(int i = k / 2 - 1; i >= 0; i--) siftDown(heap, 0, i, k);
+        while(values.hasNext()) {
+            int v = values.nextInt();
+            if(k > 0 && v < heap[0]) {
+                heap[0] = v;
+                siftDown(heap, 0, 0, k);
+            }
+        }
+        if(k > 1) heapSort(heap, 0, k - 1);
+        return heap;
+    }
+
+    // Nearest-rank percentiles (0-100) of arr, all selected in one multi-way descent: each
+    // partition step sends the wanted ranks to the sides that hold them. Reorders arr.
+    public static int[] percentiles(int[] arr, double... percents) {
+        int n = arr.length;
+        if(n == 0) throw new IllegalArgumentException("No percentiles of an empty array");
+        int[] ranks = new int[percents.length];
+        for(int p = 0; p < percents.length; p++) {
+            if(!(percents[p] >= 0 && percents[p] <= 100)) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percents[p]);
+            }
+            ranks[p] = Math.max(0, (int) Math.ceil(percents[p] / 100 * n) - 1);
+        }
+        int[] sortedRanks = ranks.clone();
+        Arrays.sort(sortedRanks);
+        multiSelect(arr, 0, n - 1, sortedRanks, 0, sortedRanks.length - 1,
+                2 * (31 - Integer.numberOfLeadingZeros(n)));
+        int[] result = new int[ranks.length];
+        for(int p = 0; p < ranks.length; p++) result[p] = arr[ranks[p]];
+        return result;
+    }
+
+    // Selects every rank in ranks[from..to] (ascending), all of which lie in [low, high]
+    private static void multiSelect(int[] arr, int low, int high, int[] ranks, int from, int to, int depthLimit) {
+        while(from <= to) {
+            if(high - low < INSERTION_CUTOFF) {
+                insertionSort(arr, low, high);
+                return;
+            }
+            if(depthLimit-- == 0) {
+                heapSort(arr, low, high);
+                return;
+            }
+            long bounds = partitionThreeWay(arr, low, high, arr[selectPivot(arr, low, high)]);
+            int lt = (int) (bounds >>> 32), gt = (int) bounds;
+            // ranks[from, left) fall below the pivot block, ranks (right, to] above it
+            int left = from;
+            while(left <= to && ranks[left] < lt) left++;
+            int right = to;
+            while(right >= left && ranks[right] > gt) right--;
+            if(left - from < to - right) {
+                if(left > from) multiSelect(arr, low, lt - 1, ranks, from, left - 1, depthLimit);
+                low = gt + 1;
+                from = right + 1;
+            } else {
+                if(right < to) multiSelect(arr, gt + 1, high, ranks, right + 1, to, depthLimit);
+                high = lt - 1;
+                to = left - 1;
+            }
+        }
+    }
+
+    // Counting Sort
+    // Only for small value ranges: uses one counter per distinct value between min and max.
+    static final int COUNTING_SORT_MAX_RANGE = 1 << 24;
+
+    public static void countingSort(int[] arr) {
+        countingSort(arr, null);
+    }
+
+    public static void countingSort(int[] arr, SortProbe probe) {
+        if(arr.length < 2) return;
+        int min = arr[0], max = arr[0];
+        for(int v : arr) {
+            if(v < min) min = v;
+            if(v > max) max = v;
+        }
+        countingSort(arr, min, max, probe);
+    }
+
+    static void countingSort(int[] arr, int min, int max, SortProbe probe) {
+        long range = (long) max - min + 1;
+        if(range > COUNTING_SORT_MAX_RANGE) {
+            throw new IllegalArgumentException("Value range " + range + " is too large for counting sort");
+        }
+        int[] count = new int[(int) range];
+        if(probe != null) probe.allocated(range * Integer.BYTES);
+        for(int i = 0; i < arr.length; i++) {
+            if(probe != null) probe.read(i);
+            count[arr[i] - min]++;
+        }
+        int k = 0;
+        for(int v = 0; v < range; v++) {
+            for(int c = count[v]; c > 0; c--) {
+                if(probe != null) probe.write(k, v + min);
+                arr[k++] = v + min;
+            }
+        }
+    }
+
+    // Radix Sort (LSD)
+    // Stable passes over digitBits-wide digits, least significant first. Keys are compared with
+    // the sign bit flipped so negative numbers land before positive ones, and a pass is skipped
+    // when every key has the same digit (e.g. the high digits of small values).
+    public static void radixSort(int[] arr) {
+        radixSort(arr, 8);
+    }
+
+    public static void radixSort(int[] arr, int digitBits) {
+        radixSort(arr, digitBits, null);
+    }
+
+    // A traced pass is recorded as reads of the source followed by writing the pass output
+    // in place, so the replayed array always shows the current pass result
+    public static void radixSort(int[] arr, int digitBits, SortProbe probe) {
+        if(digitBits < 1 || digitBits > 16) {
+            throw new IllegalArgumentException("Digit width must be between 1 and 16 bits: " + digitBits);
+        }
+        int n = arr.length;
+        if(n < 2) return;
+        int mask = (1 << digitBits) - 1;
+        int[] src = arr, dst = new int[n];
+        int[] count = new int[mask + 2];
+        if(probe != null) probe.allocated((long) (n + mask + 2) * Integer.BYTES);
+        for(int shift = 0; shift < 32; shift += digitBits) {
+            Arrays.fill(count, 0);
+            for(int v : src) count[(((v ^ Integer.MIN_VALUE) >>> shift) & mask) + 1]++;
+            if(count[(((src[0] ^ Integer.MIN_VALUE) >>> shift) & mask) + 1] == n) continue;
+            for(int d = 0; d <= mask; d++) count[d + 1] += count[d];
+            for(int v : src) dst[count[((v ^ Integer.MIN_VALUE) >>> shift) & mask]++] = v;
+            if(probe != null) {
+                for(int i = 0; i < n; i++) probe.read(i);
+                for(int i = 0; i < n; i++) probe.write(i, dst[i]);
+            }
+            int[] temp = src;
+            src = dst;
+            dst = temp;
+        }
+        if(src != arr) System.arraycopy(src, 0, arr, 0, n);
+    }
+
+    // American Flag Sort (in-place MSD radix)
+    // Permutes each range into 256 buckets by its top remaining byte with cycle-leader swaps,
+    // then recurses into every bucket with the next byte. Small buckets use insertion sort.
+    public static void americanFlagSort(int[] arr) {
+        americanFlagSort(arr, null);
+    }
+
+    public static void americanFlagSort(int[] arr, SortProbe probe) {
+        if(arr.length < 2) return;
+        if(probe != null) probe.allocated(4 * 512 * Integer.BYTES);
+        americanFlagSort(arr, 0, arr.length - 1, 24, new int[4][512], probe);
+    }
+
+    // scratch[depth] holds the bucket heads (0..255) and ends (256..511) for that byte
+    private static void americanFlagSort(int[] arr, int low, int high, int shift, int[][] scratch,
+                                         SortProbe probe) {
+        if(high - low < INSERTION_CUTOFF) {
+            if(probe != null) insertionSortTraced(arr, low, high, probe);
+            else insertionSort(arr, low, high);
+            return;
+        }
+        if(probe != null) probe.range(low, high);
+        int[] heads = scratch[(24 - shift) >> 3];
+        Arrays.fill(heads, 0, 256, 0);
+        for(int i = low; i <= high; i++) {
+            if(probe != null) probe.read(i);
+            heads[flagDigit(arr[i], shift)]++;
+        }
+        int start = low;
+        for(int d = 0; d < 256; d++) {
+            int size = heads[d];
+            heads[d] = start;
+            start += size;
+            heads[256 + d] = start;
+        }
+
+        for(int d = 0; d < 256; d++) {
+            while(heads[d] < heads[256 + d]) {
+                int v = arr[heads[d]];
+                int vd = flagDigit(v, shift);
+                while(vd != d) {
+                    int temp = arr[heads[vd]];
+                    if(probe != null) probe.write(heads[vd], v);
+                    arr[heads[vd]++] = v;
+                    v = temp;
+                    vd = flagDigit(v, shift);
+                }
+                if(probe != null) probe.write(heads[d], v);
+                arr[heads[d]++] = v;
+            }
+        }
+
+        if(shift == 0) return;
+        if(probe != null) probe.enter();
+        int bucketStart = low;
+        for(int d = 0; d < 256; d++) {
+            int bucketEnd = heads[256 + d];
+            if(bucketEnd - bucketStart > 1) {
+                americanFlagSort(arr, bucketStart, bucketEnd - 1, shift - 8, scratch, probe);
+            }
+            bucketStart = bucketEnd;
+        }
+        if(probe != null) probe.exit();
+    }
+
+    private static int flagDigit(int v, int shift) {
+        return ((v ^ Integer.MIN_VALUE) >>> shift) & 0xFF;
+    }
+
+    // Integer Sort
+    // Picks counting, radix or American flag sort from one min/max scan of the input.
+    public static void integerSort(int[] arr) {
+        int n = arr.length;
+        if(n < 2) return;
+        int min = arr[0], max = arr[0];
+        for(int v : arr) {
+            if(v < min) min = v;
+            if(v > max) max = v;
+        }
+        switch(chooseIntegerSort(n, min, max)) {
+            case "insertion": insertionSort(arr); break;
+            case "counting": countingSort(arr, min, max, null); break;
+            case "radix11": radixSort(arr, 11); break;
+            case "radix8": radixSort(arr, 8); break;
+            default: americanFlagSort(arr);
+        }
+    }
+
+    static String chooseIntegerSort(int n, int min, int max) {
+        long range = (long) max - min + 1;
+        if(n <= 2 * INSERTION_CUTOFF) return "insertion";
+        // Counting sort wins while its counter array is no bigger than a couple of passes over the data
+        if(range <= Math.max(256, 2L * n)) return "counting";
+        if(n >= 1 << 20) return "radix11";
+        if(n >= 1 << 12) return "radix8";
+        return "americanflag";
+    }
+
+    // Primitive Sorts (long, double, float, short)
+    // LSD radix sorts over the key bytes. All eight byte histograms come from one pass and bytes
+    // every key shares are skipped, so e.g. timestamps from one day only pay for the low bytes.
+    // Doubles and floats are sorted by their bits mapped to an order-preserving integer (the
+    // IEEE total order of Double.compare: -0.0 before 0.0, NaN last; NaNs come out canonical).
+    // The payload variants move a parallel int[] along with the keys, stably and unboxed.
+    static final int PRIMITIVE_INSERTION_CUTOFF = 48;
+
+    public static void radixSort(long[] arr) {
+        radixSort(arr, null);
+    }
+
+    public static void radixSort(long[] keys, int[] payload) {
+        int n = keys.length;
+        if(payload != null && payload.length != n) {
+            throw new IllegalArgumentException("Payload length " + payload.length + " does not match " + n + " keys");
+        }
+        if(n <= PRIMITIVE_INSERTION_CUTOFF) {
+            insertionSort(keys, payload);
+            return;
+        }
+        int[][] count = new int[8][257];
+        for(long v : keys) {
+            long k = v ^ Long.MIN_VALUE;
+            for(int b = 0; b < 8; b++) count[b][(int) ((k >>> (b << 3)) & 0xFF) + 1]++;
+        }
+        long[] src = keys, dst = new long[n];
+        int[] srcPayload = payload, dstPayload = payload == null ? null : new int[n];
+        for(int b = 0; b < 8; b++) {
+            int shift = b << 3;
+            int[] c = count[b];
+            if(c[(int) (((src[0] ^ Long.MIN_VALUE) >>> shift) & 0xFF) + 1] == n) continue;
+            for(int d = 0; d < 256; d++) c[d + 1] += c[d];
+            for(int i = 0; i < n; i++) {
+                long v = src[i];
+                int to = c[(int) (((v ^ Long.MIN_VALUE) >>> shift) & 0xFF)]++;
+                dst[to] = v;
+                if(srcPayload != null) dstPayload[to] = srcPayload[i];
+            }
+            long[] temp = src;
+            src = dst;
+            dst = temp;
+            int[] tempPayload = srcPayload;
+            srcPayload = dstPayload;
+            dstPayload = tempPayload;
+        }
+        if(src != keys) {
+            System.arraycopy(src, 0, keys, 0, n);
+            if(payload != null) System.arraycopy(srcPayload, 0, payload, 0, n);
+        }
+    }
+
+    private static void insertionSort(long[] keys, int[] payload) {
+        for(int i = 1; i < keys.length; i++) {
+            long key = keys[i];
+            int p = payload == null ? 0 : payload[i];
+            int j = i - 1;
+            while(j >= 0 && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                if(payload != null) payload[j + 1] = payload[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            if(payload != null) payload[j + 1] = p;
+        }
+    }
+
+    public static void radixSort(double[] arr) {
+        radixSort(arr, null);
+    }
+
+    public static void radixSort(double[] keys, int[] payload) {
+        long[] bits = new long[keys.length];
+        for(int i = 0; i < keys.length; i++) bits[i] = sortableBits(keys[i]);
+        radixSort(bits, payload);
+        for(int i = 0; i < keys.length; i++) keys[i] = fromSortableBits(bits[i]);
+    }
+
+    // Flipping the magnitude bits of negative values makes signed long order match Double.compare
+    public static long sortableBits(double v) {
+        long bits = Double.doubleToLongBits(v);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    static double fromSortableBits(long bits) {
+        return Double.longBitsToDouble(bits ^ ((bits >> 63) & Long.MAX_VALUE));
+    }
+
+    public static void radixSort(float[] arr) {
+        int[] bits = new int[arr.length];
+        for(int i = 0; i < arr.length; i++) {
+            int b = Float.floatToIntBits(arr[i]);
+            bits[i] = b ^ ((b >> 31) & Integer.MAX_VALUE);
+        }
+        radixSort(bits, 8);
+        for(int i = 0; i < arr.length; i++) {
+            int b = bits[i];
+            arr[i] = Float.intBitsToFloat(b ^ ((b >> 31) & Integer.MAX_VALUE));
+        }
+    }
+
+    // One counter per short value
+    public static void countingSort(short[] arr) {
+        if(arr.length < 2) return;
+        int[] count = new int[1 << 16];
+        for(short v : arr) count[v - Short.MIN_VALUE]++;
+        int k = 0;
+        for(int v = 0; v < count.length; v++) {
+            for(int c = count[v]; c > 0; c--) arr[k++] = (short) (v + Short.MIN_VALUE);
+        }
+    }
+
+    // Argsort: the indices that put keys in ascending order, ties in index order; keys are left as is
+    public static int[] argsort(long[] keys) {
+        int[] index = identity(keys.length);
+        radixSort(keys.clone(), index);
+        return index;
+    }
+
+    public static int[] argsort(double[] keys) {
+        long[] bits = new long[keys.length];
+        for(int i = 0; i < keys.length; i++) bits[i] = sortableBits(keys[i]);
+        int[] index = identity(keys.length);
+        radixSort(bits, index);
+        return index;
+    }
+
+    public static int[] argsort(int[] keys) {
+        long[] wide = new long[keys.length];
+        for(int i = 0; i < keys.length; i++) wide[i] = keys[i];
+        int[] index = identity(keys.length);
+        radixSort(wide, index);
+        return index;
+    }
+
+    private static int[] identity(int n) {
+        int[] index = new int[n];
+        for(int i = 0; i < n; i++) index[i] = i;
+        return index;
+    }
+
+    // Object Sorts
+    // Stable sort of objects by one or more keys, most significant first: each key is extracted
+    // once per item into a long column instead of being compared O(n log n) times. Keys are
+    // shifted to start at their column minimum and packed, as many as fit, into one 64-bit key
+    // next to the item index; each packed group is then sorted with the stable long radix sort,
+    // from the least significant group up. Typical compound keys (an enum ordinal, a day, an
+    // amount) fit one group and take a single radix pass. The items are moved in one pass at the
+    // end by following the cycles of the permutation. int-valued extractors widen to long; for
+    // doubles pass sortableBits(value), for descending order negate the key.
+    @SafeVarargs
+    public static <T> void sort(T[] items, ToLongFunction<? super T>... keys) {
+        int n = items.length;
+        if(n < 2 || keys.length == 0) return;
+        long[][] columns = new long[keys.length][n];
+        long[] min = new long[keys.length];
+        int[] bits = new int[keys.length];
+        for(int c = 0; c < keys.length; c++) {
+            long[] column = columns[c];
+            long lo = Long.MAX_VALUE, hi = Long.MIN_VALUE;
+            for(int i = 0; i < n; i++) {
+                long v = keys[c].applyAsLong(items[i]);
+                column[i] = v;
+                if(v < lo) lo = v;
+                if(v > hi) hi = v;
+            }
+            min[c] = lo;
+            // hi - lo wraps for ranges past Long.MAX_VALUE, but is still right as an unsigned value
+            bits[c] = 64 - Long.numberOfLeadingZeros(hi - lo);
+        }
+
+        int[] order = identity(n);
+        long[] packed = new long[n];
+        int end = keys.length;
+        while(end > 0) {
+            int start = end - 1, width = bits[start];
+            while(start > 0 && width + bits[start - 1] <= 64) width += bits[--start];
+            if(width == 0) {
+                end = start;
+                continue;
+            }
+            for(int i = 0; i < n; i++) {
+                int item = order[i];
+                long key = 0;
+                for(int c = start; c < end; c++) {
+                    key = bits[c] == 64 ? columns[c][item] - min[c] : key << bits[c] | (columns[c][item] - min[c]);
+                }
+                // Unsigned order of the packed key as the signed order radixSort uses
+                packed[i] = key ^ Long.MIN_VALUE;
+            }
+            radixSort(packed, order);
+            end = start;
+        }
+        permute(items, order);
+    }
+
+    // Rearranges items so that items[i] becomes the old items[order[i]], one cycle of the
+    // permutation at a time; placed indexes are marked by complementing them in order
+    private static <T> void permute(T[] items, int[] order) {
+        for(int i = 0; i < order.length; i++) {
+            if(order[i] < 0) continue;
+            T first = items[i];
+            int j = i;
+            while(true) {
+                int from = order[j];
+                order[j] = ~from;
+                if(from == i) {
+                    items[j] = first;
+                    break;
+                }
+                items[j] = items[from];
+                j = from;
+            }
+        }
+    }
+
+    // Parallel Merge Sort / Quick Sort
+    // Ranges at or below the cutoff are handed to the sequential versions above.
+    static final int PARALLEL_CUTOFF = 1 << 13;
+
+    public static void parallelMergeSort(int[] arr) {
+        parallelMergeSort(arr, PARALLEL_CUTOFF, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    public static void parallelMergeSort(int[] arr, int cutoff, int parallelism) {
+        if(arr.length < 2) return;
+        int[] buffer = new int[arr.length];
+        invoke(new MergeSortTask(arr, buffer, 0, arr.length - 1, Math.max(1, cutoff)), parallelism);
+    }
+
+    public static void parallelQuickSort(int[] arr) {
+        parallelQuickSort(arr, PARALLEL_CUTOFF, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    public static void parallelQuickSort(int[] arr, int cutoff, int parallelism) {
+        if(arr.length < 2) return;
+        invoke(new QuickSortTask(arr, 0, arr.length - 1, Math.max(1, cutoff)), parallelism);
+    }
+
+    // Runs in the given pool, e.g. a server's scheduler; called from one of its tasks the
+    // subtasks are forked alongside the pool's other work
+    public static void parallelQuickSort(int[] arr, ForkJoinPool pool) {
+        if(arr.length < 2) return;
+        pool.invoke(new QuickSortTask(arr, 0, arr.length - 1, PARALLEL_CUTOFF));
+    }
+
+    // One pool per parallelism other than the common pool's, created on first use and kept for
+    // the life of the JVM so repeated sorts don't start and stop threads every call. Idle
+    // workers time out and the threads are daemons, so an unused pool costs next to nothing.
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    private static void invoke(RecursiveAction task, int parallelism) {
+        if(parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+            ForkJoinPool.commonPool().invoke(task);
+            return;
+        }
+        POOLS.computeIfAbsent(parallelism, ForkJoinPool::new).invoke(task);
+    }
+
+    private static class MergeSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] arr, buffer;
+        private final int left, right, cutoff;
+
+        MergeSortTask(int[] arr, int[] buffer, int left, int right, int cutoff) {
+            this.arr = arr;
+            this.buffer = buffer;
+            this.left = left;
+            this.right = right;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            // Halves are disjoint, so each task can use its own slice of the shared buffer
+            if(right - left + 1 <= cutoff) {
+                System.arraycopy(arr, left, buffer, left, right - left + 1);
+                mergeSortInto(buffer, arr, left, right);
+                return;
+            }
+            int mid = (left + right) >>> 1;
+            invokeAll(new MergeSortTask(arr, buffer, left, mid, cutoff),
+                      new MergeSortTask(arr, buffer, mid + 1, right, cutoff));
+            if(arr[mid] <= arr[mid + 1]) return;
+            System.arraycopy(arr, left, buffer, left, right - left + 1);
+            int i = left, j = mid + 1, k = left;
+            while(i <= mid && j <= right) {
+                if(buffer[i] <= buffer[j]) arr[k++] = buffer[i++];
+                else arr[k++] = buffer[j++];
+            }
+            while(i <= mid) arr[k++] = buffer[i++];
+            while(j <= right) arr[k++] = buffer[j++];
+        }
+    }
+
+    private static class QuickSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] arr;
+        private final int low, high, cutoff;
+
+        QuickSortTask(int[] arr, int low, int high, int cutoff) {
+            this.arr = arr;
+            this.low = low;
+            this.high = high;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            if(high - low + 1 <= cutoff) {
+                introSort(arr, low, high, 2 * (32 - Integer.numberOfLeadingZeros(high - low + 1)));
+                return;
+            }
+            // Median of three random samples, then a three-way split so neither presorted
+            // nor duplicate-heavy input can build a linear chain of tasks
+            ThreadLocalRandom rand = ThreadLocalRandom.current();
+            int a = arr[rand.nextInt(low, high + 1)];
+            int b = arr[rand.nextInt(low, high + 1)];
+            int c = arr[rand.nextInt(low, high + 1)];
+            int pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+
+            int lt = low, i = low, gt = high;
+            while(i <= gt) {
+                if(arr[i] < pivot) swap(arr, lt++, i++);
+                else if(arr[i] > pivot) swap(arr, i, gt--);
+                else i++;
+            }
+            invokeAll(new QuickSortTask(arr, low, lt - 1, cutoff),
+                      new QuickSortTask(arr, gt + 1, high, cutoff));
+        }
+    }
+
+    // Off-Heap Sorts (IntBuffer)
+    // American flag sort in place on an IntBuffer between its position and limit, so data in a
+    // direct buffer or a memory-mapped file (DataHandler.mapBinary) is sorted where it is, never
+    // copied into a heap array. The heap only holds the bucket bookkeeping and one BUFFER_BLOCK
+    // sized block per thread, in which ranges that small are finished. The
+    // parallel version forks the buckets of every range above the cutoff as separate tasks, each
+    // on its own duplicate() of the buffer: the ranges are disjoint and only absolute get/put is
+    // used, so the tasks share nothing but the memory itself.
+    static final int BUFFER_BLOCK = 1 << 12;
+
+    public static void americanFlagSort(IntBuffer buf) {
+        checkWritable(buf);
+        if(buf.remaining() < 2) return;
+        americanFlagSort(buf, buf.position(), buf.limit() - 1, 24, bufferScratch());
+    }
+
+    public static void parallelFlagSort(IntBuffer buf) {
+        parallelFlagSort(buf, PARALLEL_CUTOFF, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    public static void parallelFlagSort(IntBuffer buf, int cutoff, int parallelism) {
+        checkWritable(buf);
+        if(buf.remaining() < 2) return;
+        invoke(new FlagSortTask(buf.duplicate(), buf.position(), buf.limit() - 1, 24, Math.max(1, cutoff)), parallelism);
+    }
+
+    // Bucket bookkeeping for the four bytes, plus the heap block small ranges are sorted in
+    private static int[][] bufferScratch() {
+        return new int[][]{new int[512], new int[512], new int[512], new int[512], new int[BUFFER_BLOCK]};
+    }
+
+    private static void checkWritable(IntBuffer buf) {
+        if(buf.isReadOnly()) throw new ReadOnlyBufferException();
+    }
+
+    private static void americanFlagSort(IntBuffer buf, int low, int high, int shift, int[][] scratch) {
+        if(high - low < BUFFER_BLOCK) {
+            // Small ranges are cheaper to sort in a cache-resident heap copy than through get/put
+            int n = high - low + 1;
+            int[] block = scratch[4];
+            buf.get(low, block, 0, n);
+            americanFlagSort(block, 0, n - 1, shift, scratch, null);
+            buf.put(low, block, 0, n);
+            return;
+        }
+        int[] heads = scratch[(24 - shift) >> 3];
+        flagPartition(buf, low, high, shift, heads);
+        if(shift == 0) return;
+        int bucketStart = low;
+        for(int d = 0; d < 256; d++) {
+            int bucketEnd = heads[256 + d];
+            if(bucketEnd - bucketStart > 1) americanFlagSort(buf, bucketStart, bucketEnd - 1, shift - 8, scratch);
+            bucketStart = bucketEnd;
+        }
+    }
+
+    // Permutes buf[low..high] into 256 buckets by the byte at shift; bucket d ends at heads[256 + d]
+    private static void flagPartition(IntBuffer buf, int low, int high, int shift, int[] heads) {
+        Arrays.fill(heads, 0, 256, 0);
+        for(int i = low; i <= high; i++) heads[flagDigit(buf.get(i), shift)]++;
+        int start = low;
+        for(int d = 0; d < 256; d++) {
+            int size = heads[d];
+            heads[d] = start;
+            start += size;
+            heads[256 + d] = start;
+        }
+        for(int d = 0; d < 256; d++) {
+            while(heads[d] < heads[256 + d]) {
+                int v = buf.get(heads[d]);
+                int vd = flagDigit(v, shift);
+                while(vd != d) {
+                    int temp = buf.get(heads[vd]);
+                    buf.put(heads[vd]++, v);
+                    v = temp;
+                    vd = flagDigit(v, shift);
+                }
+                buf.put(heads[d]++, v);
+            }
+        }
+    }
+
+    // Leaf tasks run by the thousand, so each worker thread keeps its scratch
+    private static final ThreadLocal<int[][]> BUFFER_SCRATCH = ThreadLocal.withInitial(SortingAlgorithms::bufferScratch);
+
+    private static class FlagSortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntBuffer buf;
+        private final int low, high, shift, cutoff;
+
+        FlagSortTask(IntBuffer buf, int low, int high, int shift, int cutoff) {
+            this.buf = buf;
+            this.low = low;
+            this.high = high;
+            this.shift = shift;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected void compute() {
+            if(high - low + 1 <= cutoff) {
+                americanFlagSort(buf, low, high, shift, BUFFER_SCRATCH.get());
+                return;
+            }
+            int[] heads = new int[512];
+            flagPartition(buf, low, high, shift, heads);
+            if(shift == 0) return;
+            List<FlagSortTask> buckets = new ArrayList<>();
+            int bucketStart = low;
+            for(int d = 0; d < 256; d++) {
+                int bucketEnd = heads[256 + d];
+                if(bucketEnd - bucketStart > 1) {
+                    buckets.add(new FlagSortTask(buf.duplicate(), bucketStart, bucketEnd - 1, shift - 8, cutoff));
+                }
+                bucketStart = bucketEnd;
+            }
+            invokeAll(buckets);
+        }
+    }
+
+    private static void swap(int[] arr, int a, int b) {
+        int temp = arr[a];
+        arr[a] = arr[b];
+        arr[b] = temp;
+    }
+}
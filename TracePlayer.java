@@ -0,0 +1,202 @@
+// Seekable playback of an OperationTrace over a copy of the array it was recorded on.
+// The array state (plus counters and highlights) is checkpointed every `interval` operations,
+// so any position is reached by restoring the nearest earlier checkpoint and replaying at most
+// `interval` operations. Stepping backwards is a seek to position - 1. When the checkpoints
+// for the requested interval would exceed the memory cap the interval is widened instead.
+public final class TracePlayer {
+    // Told about every element the playback changes, e.g. so a renderer can redraw only those
+    public interface Listener {
+        void elementChanged(int index, int oldValue, int newValue);
+
+        // Many elements changed at once (a checkpoint was restored)
+        void arrayReplaced();
+    }
+
+    private final OperationTrace trace;
+    private final int[] current;
+    private final int interval;
+    private final int[][] checkpoints;
+    // Per checkpoint: comparisons, swaps, writes, compareA, compareB, rangeLow, rangeHigh
+    private final long[][] checkpointState;
+
+    private int position;
+    private long comparisons, swaps, writes;
+    private int compareA = -1, compareB = -1;
+    private int rangeLow = -1, rangeHigh = -1;
+    private long lastSeekNanos;
+    private Listener listener;
+
+    public TracePlayer(int[] initial, OperationTrace trace, int checkpointInterval, long memoryCapBytes) {
+        if(checkpointInterval < 1) throw new IllegalArgumentException("Checkpoint interval must be positive: " + checkpointInterval);
+        this.trace = trace;
+        this.current = initial.clone();
+
+        long ops = trace.length();
+        long bytesPerCheckpoint = Math.max(1L, (long) initial.length * Integer.BYTES);
+        long maxCheckpoints = Math.max(1, memoryCapBytes / bytesPerCheckpoint);
+        long needed = ops / checkpointInterval + 1;
+        this.interval = needed <= maxCheckpoints
+                ? checkpointInterval
+                : (int) Math.min(Integer.MAX_VALUE, maxCheckpoints > 1 ? ops / (maxCheckpoints - 1) + 1 : ops + 1);
+
+        int count = (int) (ops / interval + 1);
+        checkpoints = new int[count][];
+        checkpointState = new long[count][];
+        // One pass over the trace to take the checkpoints, then rewind to the start
+        for(int c = 0; c < count; c++) {
+            advanceTo(c * interval);
+            checkpoints[c] = current.clone();
+            checkpointState[c] = saveState();
+        }
+        restore(0);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public int[] array() {
+        return current;
+    }
+
+    public int position() {
+        return position;
+    }
+
+    public int length() {
+        return trace.length();
+    }
+
+    public boolean isFinished() {
+        return position == trace.length();
+    }
+
+    public void stepForward() {
+        if(position < trace.length()) apply(position++);
+    }
+
+    // Applies up to maxOps operations and returns how many were applied
+    public int advance(int maxOps) {
+        int count = Math.min(maxOps, trace.length() - position);
+        advanceTo(position + count);
+        return count;
+    }
+
+    public void stepBack() {
+        if(position > 0) seek(position - 1);
+    }
+
+    public void seek(int target) {
+        long start = System.nanoTime();
+        target = Math.max(0, Math.min(target, trace.length()));
+        int checkpoint = target / interval;
+        // Replaying forward is cheaper when we are already inside the target's checkpoint block
+        if(target < position || position < checkpoint * interval) {
+            restore(checkpoint);
+        }
+        advanceTo(target);
+        lastSeekNanos = System.nanoTime() - start;
+    }
+
+    private void advanceTo(int target) {
+        while(position < target) apply(position++);
+    }
+
+    private void apply(int op) {
+        int a = trace.first(op), b = trace.second(op);
+        switch(trace.opcode(op)) {
+            case OperationTrace.COMPARE:
+                compareA = a;
+                compareB = b;
+                comparisons++;
+                break;
+            case OperationTrace.SWAP:
+                compareA = a;
+                compareB = b;
+                if(a != b) {
+                    int temp = current[a];
+                    current[a] = current[b];
+                    current[b] = temp;
+                    swaps++;
+                    if(listener != null) {
+                        listener.elementChanged(a, temp, current[a]);
+                        listener.elementChanged(b, current[a], temp);
+                    }
+                }
+                break;
+            case OperationTrace.WRITE:
+                compareA = a;
+                compareB = -1;
+                if(listener != null) listener.elementChanged(a, current[a], b);
+                current[a] = b;
+                writes++;
+                break;
+            case OperationTrace.READ:
+                compareA = a;
+                compareB = -1;
+                break;
+            case OperationTrace.RANGE:
+                rangeLow = a;
+                rangeHigh = b;
+                break;
+        }
+    }
+
+    private long[] saveState() {
+        return new long[]{comparisons, swaps, writes, compareA, compareB, rangeLow, rangeHigh};
+    }
+
+    private void restore(int checkpoint) {
+        System.arraycopy(checkpoints[checkpoint], 0, current, 0, current.length);
+        long[] state = checkpointState[checkpoint];
+        comparisons = state[0];
+        swaps = state[1];
+        writes = state[2];
+        compareA = (int) state[3];
+        compareB = (int) state[4];
+        rangeLow = (int) state[5];
+        rangeHigh = (int) state[6];
+        position = checkpoint * interval;
+        if(listener != null) listener.arrayReplaced();
+    }
+
+    public long comparisons() {
+        return comparisons;
+    }
+
+    public long swaps() {
+        return swaps;
+    }
+
+    public long writes() {
+        return writes;
+    }
+
+    public int compareA() {
+        return compareA;
+    }
+
+    public int compareB() {
+        return compareB;
+    }
+
+    public int rangeLow() {
+        return rangeLow;
+    }
+
+    public int rangeHigh() {
+        return rangeHigh;
+    }
+
+    public int checkpointInterval() {
+        return interval;
+    }
+
+    public long checkpointBytes() {
+        return (long) checkpoints.length * current.length * Integer.BYTES;
+    }
+
+    public long lastSeekNanos() {
+        return lastSeekNanos;
+    }
+}
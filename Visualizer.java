@@ -6,32 +6,53 @@ public class Visualizer extends JFrame {
     private int[] array;
     private JPanel panel;
     private JTextArea descriptionArea;
-    private javax.swing.Timer timer;
+    private AnimationScheduler scheduler;
 
-    private int i, j;
     private String currentAlgo;
     private boolean isPaused = false;
 
     private int compareA = -1, compareB = -1;  
     private int sortedUpto = -1;               
+    private int rangeLow = -1, rangeHigh = -1;
 
     private JSlider speedSlider;
     private JTextField arrayInput;
     private JLabel statsLabel;                 
 
     private long startTime;                    
-    private int comparisons, swaps;            
-
-    private Deque<int[]> quickTasks;
-    private Deque<int[]> mergeTasks;
-    private int partitionIndex;
+    private long comparisons, swaps, writes;
+
+    // The sort runs on a background thread and records every operation into the trace;
+    // the scheduler then replays it through a seekable player, many operations per frame
+    private static final int VISUAL_DIGIT_BITS = 4;
+    private static final Color OUT_OF_RANGE = new Color(150, 170, 220);
+    private static final int CHECKPOINT_INTERVAL = Integer.getInteger("visualizer.checkpointInterval", 1024);
+    private static final long CHECKPOINT_MEMORY_CAP =
+            Long.getLong("visualizer.checkpointMemoryMB", 64L) * 1024 * 1024;
+    // 12 bytes per operation: quadratic sorts on large arrays hit this instead of the heap limit
+    private static final int MAX_TRACE_OPS = Integer.getInteger("visualizer.maxTraceOps", 20_000_000);
+    // Lomuto quick sort recurses n deep on sorted or reverse input
+    private static final long RECORDER_STACK_BYTES = 256L * 1024 * 1024;
+    private TracePlayer player;
+    private long sortNanos;
+    private int sortGeneration;
+
+    private JSlider scrubber;
+    private boolean updatingScrubber;
+
+    // Arrays with bars narrower than this are drawn by the raster renderer instead of per-bar
+    private static final int MIN_BAR_WIDTH = 3;
+    private static final Font LABEL_FONT = new Font("Arial", Font.BOLD, 10);
+    private final BarRenderer renderer = new BarRenderer();
+    private JSpinner sizeSpinner;
+    private JLabel fpsLabel;
 
     public Visualizer() {
         setTitle("Algorithm Explorer: Sorting Visualizer with Analysis Dashboard");
         setSize(1200, 800);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         
-        array = generateArray(50, "random");
+        setArray(generateArray(50, "random"));
 
         setLayout(new BorderLayout());
 
@@ -51,11 +72,23 @@ public class Visualizer extends JFrame {
         quickBtn.addActionListener(e -> startSort("quick"));
         JButton mergeBtn = new JButton("Merge Sort");
         mergeBtn.addActionListener(e -> startSort("merge"));
+        JButton countingBtn = new JButton("Counting Sort");
+        countingBtn.addActionListener(e -> startSort("counting"));
+        JButton radixBtn = new JButton("Radix Sort");
+        radixBtn.addActionListener(e -> startSort("radix"));
+        JButton flagBtn = new JButton("American Flag Sort");
+        flagBtn.addActionListener(e -> startSort("americanflag"));
+        JButton autoBtn = new JButton("Auto");
+        autoBtn.addActionListener(e -> startAutoSort());
         sortButtonPanel.add(bubbleBtn);
         sortButtonPanel.add(insertionBtn);
         sortButtonPanel.add(selectionBtn);
         sortButtonPanel.add(quickBtn);
         sortButtonPanel.add(mergeBtn);
+        sortButtonPanel.add(countingBtn);
+        sortButtonPanel.add(radixBtn);
+        sortButtonPanel.add(flagBtn);
+        sortButtonPanel.add(autoBtn);
         
         gbc.gridx = 0;
         gbc.gridy = 0;
@@ -68,24 +101,27 @@ public class Visualizer extends JFrame {
         JButton randomBtn = new JButton("Random Array");
         randomBtn.addActionListener(e -> {
             resetState();
-            array = generateArray(50, "random");
+            setArray(generateArray(arraySize(), "random"));
             repaint();
             updateStats("Random array generated");
         });
         JButton sortedBtn = new JButton("Sorted Array");
         sortedBtn.addActionListener(e -> {
             resetState();
-            array = generateArray(50, "sorted");
+            setArray(generateArray(arraySize(), "sorted"));
             repaint();
             updateStats("Sorted array generated");
         });
         JButton reverseBtn = new JButton("Reverse Array");
         reverseBtn.addActionListener(e -> {
             resetState();
-            array = generateArray(50, "reverse");
+            setArray(generateArray(arraySize(), "reverse"));
             repaint();
             updateStats("Reverse array generated");
         });
+        sizeSpinner = new JSpinner(new SpinnerNumberModel(50, 2, 2_000_000, 10));
+        generatePanel.add(new JLabel("Size:"));
+        generatePanel.add(sizeSpinner);
         generatePanel.add(randomBtn);
         generatePanel.add(sortedBtn);
         generatePanel.add(reverseBtn);
@@ -105,7 +141,7 @@ public class Visualizer extends JFrame {
                     custom[k] = Integer.parseInt(parts[k].trim());
                 }
                 resetState();
-                array = custom;
+                setArray(custom);
                 repaint();
                 updateStats("Custom array set");
             } catch (Exception ex) {
@@ -123,48 +159,108 @@ public class Visualizer extends JFrame {
         JPanel playbackPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         JButton pauseBtn = new JButton("Pause");
         pauseBtn.addActionListener(e -> {
-            if (timer != null) {
-                timer.stop();
-                isPaused = true;
+            if (player != null) {
+                pausePlayback();
             }
         });
         JButton resumeBtn = new JButton("Resume");
         resumeBtn.addActionListener(e -> {
-            if (timer != null && isPaused) {
-                timer.start();
+            if (player != null && isPaused) {
+                scheduler.start();
                 isPaused = false;
             }
         });
         JButton stepBtn = new JButton("Step");
         stepBtn.addActionListener(e -> {
-            if (timer != null && timer.isRunning()) {
-                timer.stop();
-            }
-            isPaused = true;
+            pausePlayback();
             stepSort();
         });
+        JButton stepBackBtn = new JButton("Step Back");
+        stepBackBtn.addActionListener(e -> {
+            if (player == null) return;
+            pausePlayback();
+            player.stepBack();
+            showPlayerState();
+        });
+        JButton restartBtn = new JButton("Restart");
+        restartBtn.addActionListener(e -> {
+            if (player == null) return;
+            seekTo(0);
+            scheduler.reset();
+            scheduler.start();
+            isPaused = false;
+        });
+        playbackPanel.add(restartBtn);
+        playbackPanel.add(stepBackBtn);
         playbackPanel.add(pauseBtn);
         playbackPanel.add(resumeBtn);
         playbackPanel.add(stepBtn);
         
         gbc.gridy = 3;
         controlPanel.add(playbackPanel, gbc);
+
+        // Timeline scrubber over the recorded operations
+        scrubber = new JSlider(JSlider.HORIZONTAL, 0, 0, 0);
+        scrubber.setBorder(BorderFactory.createTitledBorder("Timeline"));
+        scrubber.addChangeListener(e -> {
+            if (updatingScrubber || player == null) return;
+            pausePlayback();
+            seekTo(scrubber.getValue());
+        });
+        gbc.gridy = 5;
+        gbc.gridwidth = 3;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        controlPanel.add(scrubber, gbc);
+        gbc.fill = GridBagConstraints.NONE;
         
-        // Speed Slider
-        speedSlider = new JSlider(JSlider.HORIZONTAL, 10, 500, 80);
-        speedSlider.setMajorTickSpacing(100);
-        speedSlider.setMinorTickSpacing(10);
-        speedSlider.setPaintTicks(true);
-        speedSlider.setPaintLabels(true);
-        speedSlider.setBorder(BorderFactory.createTitledBorder("Speed (Fast → Slow)"));
-        speedSlider.addChangeListener(e -> {
-            if (timer != null) {
-                timer.setDelay(speedSlider.getValue());
+        // Speed: logarithmic operations per second, or fit the rest of the animation into a fixed time
+        scheduler = new AnimationScheduler(new AnimationScheduler.Target() {
+            @Override
+            public int advance(int maxOps) {
+                return player == null ? 0 : player.advance(maxOps);
+            }
+
+            @Override
+            public int remaining() {
+                return player == null ? 0 : player.length() - player.position();
+            }
+
+            @Override
+            public void frameDone() {
+                if (player != null) showPlayerState();
             }
         });
+        speedSlider = new JSlider(JSlider.HORIZONTAL, 0, 70, 11);
+        Hashtable<Integer, JLabel> speedLabels = new Hashtable<>();
+        String[] rates = {"1", "10", "100", "1k", "10k", "100k", "1M", "10M"};
+        for (int k = 0; k < rates.length; k++) {
+            speedLabels.put(k * 10, new JLabel(rates[k]));
+        }
+        speedSlider.setLabelTable(speedLabels);
+        speedSlider.setMajorTickSpacing(10);
+        speedSlider.setPaintTicks(true);
+        speedSlider.setPaintLabels(true);
+        speedSlider.setBorder(BorderFactory.createTitledBorder("Speed (operations/s)"));
+        speedSlider.addChangeListener(e -> scheduler.setOpsPerSecond(sliderRate()));
+        scheduler.setOpsPerSecond(sliderRate());
+
+        JCheckBox fitBox = new JCheckBox("Fit animation to");
+        JSpinner durationSpinner = new JSpinner(new SpinnerNumberModel(10.0, 0.5, 3600.0, 1.0));
+        Runnable applyDuration = () -> {
+            speedSlider.setEnabled(!fitBox.isSelected());
+            scheduler.setTargetDuration(fitBox.isSelected() ? (Double) durationSpinner.getValue() : 0);
+        };
+        fitBox.addActionListener(e -> applyDuration.run());
+        durationSpinner.addChangeListener(e -> applyDuration.run());
+
+        JPanel speedPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        speedPanel.add(speedSlider);
+        speedPanel.add(fitBox);
+        speedPanel.add(durationSpinner);
+        speedPanel.add(new JLabel("s"));
         gbc.gridy = 4;
         gbc.gridwidth = 3;
-        controlPanel.add(speedSlider, gbc);
+        controlPanel.add(speedPanel, gbc);
 
         add(controlPanel, BorderLayout.NORTH);
 
@@ -186,6 +282,8 @@ public class Visualizer extends JFrame {
         JPanel statsPanel = new JPanel();
         statsPanel.setBorder(BorderFactory.createTitledBorder("Analysis Dashboard"));
         statsPanel.add(statsLabel);
+        fpsLabel = new JLabel();
+        statsPanel.add(fpsLabel);
         
         descriptionArea = new JTextArea(5, 40);
         descriptionArea.setEditable(false);
@@ -207,230 +305,192 @@ public class Visualizer extends JFrame {
     }
     
     private void resetState() {
-        if (timer != null) {
-            timer.stop();
+        if (scheduler != null) {
+            scheduler.reset();
         }
-        i = 0;
-        j = 0;
+        sortGeneration++;
+        player = null;
+        setScrubber(0, 0);
         compareA = compareB = -1;
+        rangeLow = rangeHigh = -1;
         sortedUpto = -1;
         isPaused = false;
         comparisons = 0;
         swaps = 0;
+        writes = 0;
     }
 
     private void startSort(String algo) {
         resetState();
         currentAlgo = algo;
-        startTime = System.nanoTime();
         updateDescription(algo);
+        updateStats("Algorithm: " + algo.toUpperCase() + " | Recording...");
 
-        if (algo.equals("quick")) {
-            quickTasks = new ArrayDeque<>();
-            quickTasks.push(new int[]{0, array.length - 1});
-        }
-        
-        if (algo.equals("merge")) {
-            mergeTasks = new ArrayDeque<>();
-            mergeTasks.push(new int[]{0, array.length - 1});
+        int generation = sortGeneration;
+        int[] input = array.clone();
+        Thread worker = new Thread(null, () -> {
+            OperationTrace recorded = new OperationTrace(MAX_TRACE_OPS);
+            long start = System.nanoTime();
+            try {
+                runSort(algo, input, recorded);
+            } catch (Throwable ex) {
+                // Unknown algorithm, trace full, recursion too deep or out of memory: drop the
+                // trace and tell the user instead of leaving the UI at "Recording..."
+                recorded = null;
+                String message = ex instanceof StackOverflowError
+                        ? "Recursion too deep for " + input.length + " elements"
+                        : ex instanceof OutOfMemoryError
+                        ? "Out of memory recording " + input.length + " elements"
+                        : ex.getMessage() != null ? ex.getMessage() : ex.toString();
+                SwingUtilities.invokeLater(() -> {
+                    if (generation != sortGeneration) return;
+                    currentAlgo = null;
+                    updateStats("Ready");
+                    JOptionPane.showMessageDialog(this, "Could not record " + algo + ": " + message);
+                });
+                return;
+            }
+            long elapsed = System.nanoTime() - start;
+            OperationTrace trace = recorded;
+            SwingUtilities.invokeLater(() -> beginReplay(generation, trace, elapsed));
+        }, "sort-recorder", RECORDER_STACK_BYTES);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // AutoSorter picks one of the animated sorts from the current array and says why
+    private void startAutoSort() {
+        AutoSorter.Decision decision = AutoSorter.chooseAnimated(array);
+        startSort(decision.algorithm);
+        descriptionArea.setText("Auto: " + decision.reason + " [" + decision.shape + "]\n\n" + descriptionArea.getText());
+    }
+
+    private static void runSort(String algo, int[] arr, OperationTrace trace) {
+        // 4-bit digits so the small demo values still take more than one pass
+        if (algo.equals("radix")) {
+            SortingAlgorithms.radixSort(arr, VISUAL_DIGIT_BITS, trace);
+        } else {
+            SortingAlgorithms.sort(algo, arr, trace);
         }
-        
+    }
+
+    private void beginReplay(int generation, OperationTrace recorded, long elapsedNanos) {
+        // A newer sort or a new array replaced this one while it was recording
+        if (generation != sortGeneration) return;
+        player = new TracePlayer(array, recorded, CHECKPOINT_INTERVAL, CHECKPOINT_MEMORY_CAP);
+        setArray(player.array());
+        player.setListener(renderer);
+        setScrubber(0, player.length());
+        sortNanos = elapsedNanos;
+        startTime = System.nanoTime();
         isPaused = false;
-        timer = new javax.swing.Timer(speedSlider.getValue(), e -> stepSort());
-        timer.start();
+        scheduler.reset();
+        scheduler.start();
     }
-    
+
     private void stepSort() {
-        if (currentAlgo == null) return;
-        
-        long currentTime = System.nanoTime();
-        double timeMs = (currentTime - startTime) / 1_000_000.0;
-        updateStats("Algorithm: " + currentAlgo.toUpperCase() + 
-                " | Comparisons: " + comparisons + 
-                " | Swaps: " + swaps + 
-                " | Time: " + String.format("%.2f ms", timeMs));
-
-        switch (currentAlgo) {
-            case "bubble": bubbleStep(); break;
-            case "insertion": insertionStep(); break;
-            case "selection": selectionStep(); break;
-            case "quick": quickStep(); break;
-            case "merge": mergeStep(); break;
-        }
-        panel.repaint();
+        if (currentAlgo == null || player == null) return;
+
+        player.stepForward();
+        showPlayerState();
     }
-    
-    private void bubbleStep() {
-        if (i < array.length - 1) {
-            if (j < array.length - i - 1) {
-                compareA = j;
-                compareB = j + 1;
-                comparisons++;
-                if (array[j] > array[j + 1]) {
-                    swap(j, j + 1);
-                }
-                j++;
-            } else {
-                sortedUpto = array.length - i - 1;
-                j = 0;
-                i++;
-            }
-        } else {
-            sortedUpto = array.length - 1;
-            timer.stop();
-            finishSort();
-        }
+
+    private void pausePlayback() {
+        scheduler.stop();
+        isPaused = true;
     }
 
-    private void insertionStep() {
-        if (i < array.length) {
-            if (j == 0) {
-                j = i - 1;
-                while (j >= 0 && array[j] > array[i]) {
-                    j--;
-                }
-                int key = array[i];
-                for (int k = i; k > j + 1; k--) {
-                    array[k] = array[k - 1];
-                    swaps++;
-                }
-                array[j + 1] = key;
-                swaps++;
-                sortedUpto = i;
-                i++;
-                comparisons += (i - j - 1);
-            }
-        }
-        if (i >= array.length) {
-            sortedUpto = array.length - 1;
-            timer.stop();
-            finishSort();
-        }
+    private double sliderRate() {
+        return Math.pow(10, speedSlider.getValue() / 10.0);
     }
-    
-    private void selectionStep() {
-        if (i < array.length - 1) {
-            int minIndex = i;
-            for (int k = i + 1; k < array.length; k++) {
-                compareA = minIndex;
-                compareB = k;
-                comparisons++;
-                if (array[k] < array[minIndex]) {
-                    minIndex = k;
-                }
-            }
-            if (minIndex != i) {
-                swap(i, minIndex);
-            }
-            sortedUpto = i;
-            i++;
-        } else {
-            sortedUpto = array.length - 1;
-            timer.stop();
-            finishSort();
-        }
+
+    private void seekTo(int position) {
+        player.seek(position);
+        showPlayerState();
     }
-    
-    private void quickStep() {
-        if (!quickTasks.isEmpty()) {
-            int[] range = quickTasks.peek();
-            int low = range[0], high = range[1];
-            if (low < high) {
-                int pivot = partition(low, high);
-                quickTasks.pop();
-                quickTasks.push(new int[]{pivot + 1, high});
-                quickTasks.push(new int[]{low, pivot - 1});
-            } else {
-                quickTasks.pop();
-            }
-        } else {
+
+    // Copies the player's position, counters and highlights into the view
+    private void showPlayerState() {
+        comparisons = player.comparisons();
+        swaps = player.swaps();
+        writes = player.writes();
+        setScrubber(player.position(), player.length());
+
+        if (player.isFinished()) {
+            compareA = compareB = -1;
+            rangeLow = rangeHigh = -1;
             sortedUpto = array.length - 1;
-            timer.stop();
             finishSort();
+        } else {
+            compareA = player.compareA();
+            compareB = player.compareB();
+            rangeLow = player.rangeLow();
+            rangeHigh = player.rangeHigh();
+            sortedUpto = -1;
+
+            long currentTime = System.nanoTime();
+            double timeMs = (currentTime - startTime) / 1_000_000.0;
+            updateStats("Algorithm: " + currentAlgo.toUpperCase() + 
+                    " | Comparisons: " + comparisons + 
+                    " | Swaps: " + swaps + 
+                    " | Writes: " + writes +
+                    " | Step: " + player.position() + "/" + player.length() +
+                    " | Seek: " + String.format("%.3f ms", player.lastSeekNanos() / 1_000_000.0) +
+                    " | Time: " + String.format("%.2f ms", timeMs));
         }
+        repaintArray();
     }
-    
-    private int partition(int low, int high) {
-        int pivot = array[high];
-        int i = low - 1;
-        for (int j = low; j < high; j++) {
-            compareA = j;
-            compareB = high;
-            comparisons++;
-            if (array[j] < pivot) {
-                i++;
-                swap(i, j);
-            }
-        }
-        swap(i + 1, high);
-        return i + 1;
-    }
-    
-    private void mergeStep() {
-        if (!mergeTasks.isEmpty()) {
-            int[] range = mergeTasks.pop();
-            int left = range[0], right = range[1];
-            if (left < right) {
-                int mid = (left + right) / 2;
-                mergeTasks.push(new int[]{mid + 1, right});
-                mergeTasks.push(new int[]{left, mid});
-                merge(left, mid, right);
-            }
+
+    // Large arrays only repaint the columns the renderer reports as changed
+    private void repaintArray() {
+        if (usesRaster()) {
+            Rectangle dirty = renderer.prepare(panel.getWidth(), panel.getHeight(),
+                    compareA, compareB, sortedUpto, rangeLow, rangeHigh);
+            if (dirty != null) panel.repaint(dirty);
         } else {
-            sortedUpto = array.length - 1;
-            timer.stop();
-            finishSort();
+            panel.repaint();
         }
     }
 
-    private void merge(int left, int mid, int right) {
-        int n1 = mid - left + 1;
-        int n2 = right - mid;
-
-        int[] L = new int[n1];
-        int[] R = new int[n2];
+    private boolean usesRaster() {
+        return array.length > 0 && panel.getWidth() / array.length < MIN_BAR_WIDTH;
+    }
 
-        System.arraycopy(array, left, L, 0, n1);
-        System.arraycopy(array, mid + 1, R, 0, n2);
+    private void setScrubber(int value, int max) {
+        updatingScrubber = true;
+        scrubber.setMaximum(max);
+        scrubber.setValue(value);
+        updatingScrubber = false;
+    }
 
-        int p = 0, q = 0, k = left;
-        while (p < n1 && q < n2) {
-            compareA = left + p;
-            compareB = mid + 1 + q;
-            comparisons++;
-            if (L[p] <= R[q]) {
-                array[k++] = L[p++];
-            } else {
-                array[k++] = R[q++];
-                swaps++;
-            }
-        }
-        while (p < n1) array[k++] = L[p++];
-        while (q < n2) array[k++] = R[q++];
+    private void setArray(int[] arr) {
+        array = arr;
+        renderer.setArray(arr);
     }
 
-    private void swap(int a, int b) {
-        if (a != b) {
-            swaps++;
-            int temp = array[a];
-            array[a] = array[b];
-            array[b] = temp;
-        }
+    private int arraySize() {
+        return (Integer) sizeSpinner.getValue();
     }
 
     private void drawArray(Graphics g) {
         if (panel.getWidth() <= 0 || array.length == 0) return;
+
+        if (usesRaster()) {
+            renderer.prepare(panel.getWidth(), panel.getHeight(), compareA, compareB, sortedUpto, rangeLow, rangeHigh);
+            renderer.paint(g);
+            fpsLabel.setText(String.format("| FPS: %.1f", renderer.fps()));
+            return;
+        }
         
-        int width = Math.max(1, panel.getWidth() / array.length);
-        int maxValue = Arrays.stream(array).max().orElse(1);
+        int width = panel.getWidth() / array.length;
+        int maxValue = renderer.maxValue();
         int maxHeight = panel.getHeight() - 20; 
         
-        Font font = new Font("Arial", Font.BOLD, 10);
-        g.setFont(font);
-        FontMetrics fm = g.getFontMetrics(font);
+        g.setFont(LABEL_FONT);
+        FontMetrics fm = g.getFontMetrics(LABEL_FONT);
 
         for (int idx = 0; idx < array.length; idx++) {
-            int height = Math.max(5, (array[idx] * maxHeight) / maxValue);
+            int height = Math.max(5, (int) ((long) array[idx] * maxHeight / maxValue));
             int x = idx * width;
             int y = panel.getHeight() - height;
             
@@ -438,6 +498,8 @@ public class Visualizer extends JFrame {
                 g.setColor(Color.RED);
             } else if (idx <= sortedUpto) {
                 g.setColor(Color.GREEN);
+            } else if (rangeLow >= 0 && (idx < rangeLow || idx > rangeHigh)) {
+                g.setColor(OUT_OF_RANGE);
             } else {
                 g.setColor(Color.BLUE);
             }
@@ -467,7 +529,7 @@ public class Visualizer extends JFrame {
                 for (int i = 0; i < size; i++) arr[i] = size - i;
                 break;
             default:
-                for (int i = 0; i < size; i++) arr[i] = rand.nextInt(100) + 1;
+                for (int i = 0; i < size; i++) arr[i] = rand.nextInt(Math.max(100, size)) + 1;
         }
         return arr;
     }
@@ -499,6 +561,18 @@ public class Visualizer extends JFrame {
                 description = "Merge Sort: A divide-and-conquer algorithm that divides the unsorted list into n sublists, each containing one element, and repeatedly merges sublists to produce new sorted sublists until there is only one sublist remaining.\n" +
                               "Big-O: Best O(n log n), Avg O(n log n), Worst O(n log n)";
                 break;
+            case "counting":
+                description = "Counting Sort: Counts how many times each value occurs, then writes the values back in order. It never compares elements, but needs one counter per value in the range k.\n" +
+                              "Big-O: Best O(n + k), Avg O(n + k), Worst O(n + k)";
+                break;
+            case "radix":
+                description = "Radix Sort (LSD): Stably distributes the elements by one digit at a time, starting with the least significant digit. Digits that every element shares are skipped.\n" +
+                              "Big-O: Best O(n), Avg O(w/b · (n + 2^b)), Worst O(w/b · (n + 2^b)) for w-bit keys and b-bit digits";
+                break;
+            case "americanflag":
+                description = "American Flag Sort: An in-place MSD radix sort. It permutes each range into buckets by its most significant remaining digit, then sorts every bucket by the next digit.\n" +
+                              "Big-O: Best O(n), Avg O(w/b · n), Worst O(w/b · n) for w-bit keys and b-bit digits";
+                break;
         }
         descriptionArea.setText(description);
     }
@@ -509,7 +583,12 @@ public class Visualizer extends JFrame {
         updateStats("Algorithm: " + currentAlgo.toUpperCase() +
                 " | Comparisons: " + comparisons +
                 " | Swaps: " + swaps +
+                " | Writes: " + writes +
                 " | Time: " + String.format("%.2f ms", timeMs) +
+                " | Sort: " + String.format("%.3f ms", sortNanos / 1_000_000.0) +
+                " | Seek: " + String.format("%.3f ms", player.lastSeekNanos() / 1_000_000.0) +
+                " | Checkpoints: every " + player.checkpointInterval() + " ops, " +
+                String.format("%.1f KB", player.checkpointBytes() / 1024.0) +
                 " | Status: Complete!");
     }
 
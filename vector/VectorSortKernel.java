@@ -0,0 +1,174 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+// SortKernel on jdk.incubator.vector: bitonic sorting networks over 8-lane int vectors.
+// A block of up to 32 elements is handled as four vectors (padded with MAX_VALUE): each is
+// sorted in-register by the 6-stage bitonic network, then pairs and quads are combined with
+// bitonic merges. merge() streams two sorted runs through the same 8+8 bitonic merge,
+// emitting 8 elements per step. Needs 256-bit vectors; on narrower hardware the constructor
+// refuses and SortKernels falls back to the scalar kernel.
+public final class VectorSortKernel implements SortKernel {
+    private static final VectorSpecies<Integer> S = IntVector.SPECIES_256;
+    private static final int L = 8;
+    private static final IntVector MAX = IntVector.broadcast(S, Integer.MAX_VALUE);
+    private static final IntVector IOTA = IntVector.fromArray(S, new int[]{0, 1, 2, 3, 4, 5, 6, 7}, 0);
+    private static final VectorShuffle<Integer> REVERSE = VectorShuffle.fromOp(S, i -> L - 1 - i);
+
+    // Bitonic stages (k, j) = (2,1) (4,2) (4,1) (8,4) (8,2) (8,1): lane i is paired with i ^ j
+    // and keeps the max when it is the upper lane of an ascending pair or the lower lane of a
+    // descending one. The last three stages alone merge a bitonic vector. Each shuffle and mask
+    // is its own constant so the JIT can keep every vector in a register.
+    private static final VectorShuffle<Integer> XOR1 = partner(1), XOR2 = partner(2), XOR4 = partner(4);
+    private static final VectorMask<Integer> MAX_2_1 = keepsMax(2, 1), MAX_4_2 = keepsMax(4, 2),
+            MAX_4_1 = keepsMax(4, 1), MAX_8_4 = keepsMax(8, 4), MAX_8_2 = keepsMax(8, 2), MAX_8_1 = keepsMax(8, 1);
+
+    private static VectorShuffle<Integer> partner(int j) {
+        return VectorShuffle.fromOp(S, i -> i ^ j);
+    }
+
+    private static VectorMask<Integer> keepsMax(int k, int j) {
+        boolean[] lanes = new boolean[L];
+        for(int i = 0; i < L; i++) lanes[i] = ((i & j) != 0) != ((i & k) != 0 && k < L);
+        return VectorMask.fromArray(S, lanes, 0);
+    }
+
+    public VectorSortKernel() {
+        if(IntVector.SPECIES_PREFERRED.vectorBitSize() < S.vectorBitSize()) {
+            throw new UnsupportedOperationException("No 256-bit vectors on this CPU");
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector" + S.vectorBitSize();
+    }
+
+    private static IntVector stage(IntVector v, VectorShuffle<Integer> partner, VectorMask<Integer> keepsMax) {
+        IntVector other = v.rearrange(partner);
+        return v.min(other).blend(v.max(other), keepsMax);
+    }
+
+    private static IntVector sortVector(IntVector v) {
+        v = stage(v, XOR1, MAX_2_1);
+        v = stage(v, XOR2, MAX_4_2);
+        v = stage(v, XOR1, MAX_4_1);
+        return mergeVector(v);
+    }
+
+    private static IntVector mergeVector(IntVector v) {
+        v = stage(v, XOR4, MAX_8_4);
+        v = stage(v, XOR2, MAX_8_2);
+        return stage(v, XOR1, MAX_8_1);
+    }
+
+    // A block's last vector usually runs past the range. When the array itself continues the
+    // vector is read whole and the outside lanes are replaced by MAX_VALUE (they sort to the
+    // top); on store those lanes get their original values back, so one full load and store
+    // replace the slower masked ones.
+    private static IntVector load(int[] arr, int from, int end) {
+        if(from + L > arr.length) return loadMasked(arr, from, end);
+        IntVector v = IntVector.fromArray(S, arr, from);
+        return from + L <= end ? v : v.blend(MAX, IOTA.compare(VectorOperators.GE, end - from));
+    }
+
+    private static IntVector loadMasked(int[] arr, int from, int end) {
+        VectorMask<Integer> inRange = S.indexInRange(from, end);
+        return IntVector.fromArray(S, arr, from, inRange).blend(MAX, inRange.not());
+    }
+
+    private static void store(IntVector v, int[] arr, int from, int end) {
+        if(from + L <= end) v.intoArray(arr, from);
+        else if(from + L <= arr.length) IntVector.fromArray(S, arr, from).blend(v, IOTA.lt(end - from)).intoArray(arr, from);
+        else v.intoArray(arr, from, S.indexInRange(from, end));
+    }
+
+    // Sorted 8-vectors are merged through memory rather than passed between methods: a vector
+    // crossing a call the JIT did not inline gets boxed, and a 32-element network is too big
+    // for one inlined body
+    @Override
+    public void sortBlock(int[] arr, int low, int high) {
+        int n = high - low + 1;
+        int end = high + 1;
+        if(n < 2) return;
+        if(n > BLOCK) throw new IllegalArgumentException("Block of " + n + " exceeds " + BLOCK);
+        for(int from = low; from < end; from += L) sort8(arr, from, end);
+        if(n <= L) return;
+        merge16(arr, low, end);
+        if(n <= 2 * L) return;
+        if(n > 3 * L) merge16(arr, low + 2 * L, end);
+        merge32(arr, low, end);
+    }
+
+    private static void sort8(int[] arr, int from, int end) {
+        store(sortVector(load(arr, from, end)), arr, from, end);
+    }
+
+    // Ascending a against reversed b is bitonic: lanewise min/max split it into two bitonic
+    // halves with every element of the first below every element of the second
+    private static void merge16(int[] arr, int from, int end) {
+        IntVector a = load(arr, from, end);
+        IntVector b = load(arr, from + L, end).rearrange(REVERSE);
+        store(mergeVector(a.min(b)), arr, from, end);
+        store(mergeVector(a.max(b)), arr, from + L, end);
+    }
+
+    // Sorted runs [a0 a1] and [b0 b1]: compare against the reversed second run, then merge at
+    // vector distance 1 and finally within each vector
+    private static void merge32(int[] arr, int from, int end) {
+        IntVector a0 = load(arr, from, end);
+        IntVector a1 = load(arr, from + L, end);
+        IntVector rb1 = load(arr, from + 3 * L, end).rearrange(REVERSE);
+        IntVector rb0 = load(arr, from + 2 * L, end).rearrange(REVERSE);
+        IntVector w = a0.min(rb1), y = a0.max(rb1);
+        IntVector x = a1.min(rb0), z = a1.max(rb0);
+        store(mergeVector(w.min(x)), arr, from, end);
+        store(mergeVector(w.max(x)), arr, from + L, end);
+        store(mergeVector(y.min(z)), arr, from + 2 * L, end);
+        store(mergeVector(y.max(z)), arr, from + 3 * L, end);
+    }
+
+    @Override
+    public void merge(int[] src, int low, int mid, int high, int[] dst) {
+        int a = low, b = mid, out = low;
+        if(mid - low < L || high - mid < L) {
+            SortKernels.scalarMerge(src, a, mid, b, high, dst, out);
+            return;
+        }
+        IntVector carry = IntVector.fromArray(S, src, a);
+        a += L;
+        IntVector next = IntVector.fromArray(S, src, b);
+        b += L;
+        while(true) {
+            IntVector rn = next.rearrange(REVERSE);
+            mergeVector(carry.min(rn)).intoArray(dst, out);
+            out += L;
+            carry = mergeVector(carry.max(rn));
+            // Everything written so far is <= both heads, so the next block must come from
+            // the run with the smaller head; stop when that run has no full block left
+            boolean fromA = a < mid && (b >= high || src[a] <= src[b]);
+            if(fromA ? a + L > mid : b + L > high) break;
+            if(fromA) {
+                next = IntVector.fromArray(S, src, a);
+                a += L;
+            } else {
+                next = IntVector.fromArray(S, src, b);
+                b += L;
+            }
+        }
+        // Three-way scalar finish: the carried block and what is left of each run
+        int r = 0;
+        while(r < L) {
+            int v = carry.lane(r);
+            if(a < mid && src[a] < v && (b >= high || src[a] <= src[b])) dst[out++] = src[a++];
+            else if(b < high && src[b] < v) dst[out++] = src[b++];
+            else {
+                dst[out++] = v;
+                r++;
+            }
+        }
+        SortKernels.scalarMerge(src, a, mid, b, high, dst, out);
+    }
+}